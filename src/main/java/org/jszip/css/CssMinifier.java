@@ -0,0 +1,329 @@
+package org.jszip.css;
+
+import java.util.regex.Pattern;
+
+/**
+ * Minifies CSS in a single pass over the stylesheet. Comments are removed (except {@code /*!} comments between
+ * statements, which usually carry a license), whitespace is collapsed and dropped wherever it is not significant,
+ * redundant semicolons and empty rules are removed, {@code #aabbcc} colours are shortened to {@code #abc} and the
+ * four sided shorthands such as {@code margin: 0 1px 0 1px} are merged to their shortest form.
+ * <p/>
+ * Strings and unquoted {@code url(...)} arguments are copied verbatim and custom properties are left alone. Instances
+ * hold no state between calls and can be shared between threads.
+ */
+public class CssMinifier {
+
+    /**
+     * The properties whose values list the top, right, bottom and left sides and can be shortened by the usual CSS
+     * rules.
+     */
+    private static final Pattern BOX_PROPERTY =
+            Pattern.compile("(?i)margin|padding|border-width|border-style|border-color");
+
+    /**
+     * A zero length, with or without a unit.
+     */
+    private static final Pattern ZERO_LENGTH =
+            Pattern.compile("(?i)[-+]?0*\\.?0+(px|em|rem|ex|ch|pt|pc|in|cm|mm|vw|vh|vmin|vmax|%)?");
+
+    /**
+     * Minifies a stylesheet.
+     *
+     * @param css the stylesheet.
+     * @return the minified stylesheet.
+     */
+    public String minify(String css) {
+        final int length = css.length();
+        StringBuilder out = new StringBuilder(length);
+        // the statement being read: a selector, at-rule prelude or declaration
+        StringBuilder current = new StringBuilder();
+        // for each open block, the output position before its prelude and after its opening brace
+        int[] blocks = new int[16];
+        int depth = 0;
+        int parens = 0;
+        boolean space = false;
+        int i = 0;
+        while (i < length) {
+            char c = css.charAt(i);
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                end = end == -1 ? length : end + 2;
+                if (i + 2 < length && css.charAt(i + 2) == '!' && current.length() == 0) {
+                    out.append(css, i, end);
+                } else {
+                    space = true;
+                }
+                i = end;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+                continue;
+            }
+            if (space && current.length() > 0 && !noSpaceAfter(current.charAt(current.length() - 1), parens)
+                    && !noSpaceBefore(c, parens)) {
+                current.append(' ');
+            }
+            space = false;
+            switch (c) {
+                case '"':
+                case '\'': {
+                    int end = endOfString(css, i);
+                    current.append(css, i, end);
+                    i = end;
+                    continue;
+                }
+                case '(':
+                    parens++;
+                    current.append(c);
+                    i++;
+                    if (endsWithIgnoreCase(current, "url(")) {
+                        int start = i;
+                        while (start < length && Character.isWhitespace(css.charAt(start))) {
+                            start++;
+                        }
+                        if (start < length && css.charAt(start) != '"' && css.charAt(start) != '\'') {
+                            int end = css.indexOf(')', start);
+                            end = end == -1 ? length : end;
+                            current.append(css.substring(start, end).trim());
+                            i = end;
+                        }
+                    }
+                    continue;
+                case ')':
+                    parens = Math.max(0, parens - 1);
+                    current.append(c);
+                    break;
+                case '{':
+                    if (depth * 2 == blocks.length) {
+                        int[] grown = new int[blocks.length * 2];
+                        System.arraycopy(blocks, 0, grown, 0, blocks.length);
+                        blocks = grown;
+                    }
+                    blocks[depth * 2] = out.length();
+                    out.append(current).append('{');
+                    blocks[depth * 2 + 1] = out.length();
+                    depth++;
+                    current.setLength(0);
+                    parens = 0;
+                    break;
+                case ';':
+                    if (current.length() > 0) {
+                        out.append(depth == 0 ? current : compressDeclaration(current.toString())).append(';');
+                        current.setLength(0);
+                    }
+                    parens = 0;
+                    break;
+                case '}':
+                    if (current.length() > 0) {
+                        out.append(compressDeclaration(current.toString()));
+                        current.setLength(0);
+                    }
+                    parens = 0;
+                    if (depth == 0) {
+                        // unbalanced, leave it for the browser to deal with
+                        out.append(c);
+                        break;
+                    }
+                    depth--;
+                    int last = out.length() - 1;
+                    if (last >= blocks[depth * 2 + 1] && out.charAt(last) == ';') {
+                        out.setLength(last);
+                    }
+                    if (out.length() == blocks[depth * 2 + 1]) {
+                        out.setLength(blocks[depth * 2]);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+                default:
+                    current.append(c);
+                    break;
+            }
+            i++;
+        }
+        if (current.length() > 0) {
+            out.append(current);
+        }
+        return out.toString();
+    }
+
+    private static boolean noSpaceAfter(char c, int parens) {
+        switch (c) {
+            case '{':
+            case '}':
+            case ';':
+            case ',':
+            case ':':
+            case '>':
+            case '~':
+            case '(':
+                return true;
+            case '+':
+                return parens == 0;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean noSpaceBefore(char c, int parens) {
+        switch (c) {
+            case '{':
+            case '}':
+            case ';':
+            case ',':
+            case '>':
+            case '~':
+            case ')':
+            case '!':
+                return true;
+            case '+':
+                return parens == 0;
+            default:
+                return false;
+        }
+    }
+
+    private static int endOfString(String css, int start) {
+        final char quote = css.charAt(start);
+        int i = start + 1;
+        while (i < css.length()) {
+            char c = css.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || c == '\n') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return css.length();
+    }
+
+    private static boolean endsWithIgnoreCase(CharSequence s, String suffix) {
+        int offset = s.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (Character.toLowerCase(s.charAt(offset + i)) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String compressDeclaration(String declaration) {
+        int colon = declaration.indexOf(':');
+        if (colon <= 0 || declaration.startsWith("--")) {
+            return declaration;
+        }
+        // the space before the colon is only significant in selectors
+        String property = declaration.substring(0, colon).trim();
+        String value = declaration.substring(colon + 1);
+        String important = "";
+        int bang = value.lastIndexOf('!');
+        if (bang != -1 && value.substring(bang + 1).trim().equalsIgnoreCase("important")) {
+            important = value.substring(bang);
+            value = value.substring(0, bang);
+        }
+        value = compressColors(value);
+        if (BOX_PROPERTY.matcher(property).matches()) {
+            value = mergeSides(value);
+        }
+        return property + ':' + value + important;
+    }
+
+    /**
+     * Shortens {@code #aabbcc} colours to {@code #abc}, outside of strings and {@code url(...)} arguments, where a
+     * {@code #} starts a fragment. Colours that are not preceded by the start of the value, a space, a comma or a
+     * parenthesis, such as those in IE filters, are left alone.
+     */
+    private static String compressColors(String value) {
+        StringBuilder result = null;
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = endOfString(value, i);
+                continue;
+            }
+            if ((c == 'u' || c == 'U') && value.regionMatches(true, i, "url(", 0, 4)
+                    && (i == 0 || !isNameChar(value.charAt(i - 1)))) {
+                i += 4;
+                while (i < value.length() && Character.isWhitespace(value.charAt(i))) {
+                    i++;
+                }
+                if (i < value.length() && value.charAt(i) != '"' && value.charAt(i) != '\'') {
+                    int end = value.indexOf(')', i);
+                    i = end == -1 ? value.length() : end + 1;
+                }
+                continue;
+            }
+            if (c == '#' && i + 7 <= value.length()
+                    && (i == 0 || " ,(".indexOf(value.charAt(i - 1)) != -1)
+                    && (i + 7 == value.length() || !isNameChar(value.charAt(i + 7)))
+                    && isShortenable(value, i + 1)) {
+                if (result == null) {
+                    result = new StringBuilder(value);
+                }
+                int offset = value.length() - result.length();
+                result.replace(i + 1 - offset, i + 7 - offset,
+                        new String(new char[]{value.charAt(i + 1), value.charAt(i + 3), value.charAt(i + 5)}));
+                i += 7;
+                continue;
+            }
+            i++;
+        }
+        return result == null ? value : result.toString();
+    }
+
+    private static boolean isShortenable(String value, int start) {
+        for (int i = start; i < start + 6; i += 2) {
+            char c = value.charAt(i);
+            if (Character.digit(c, 16) == -1 || Character.toLowerCase(c) != Character.toLowerCase(value.charAt(i + 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    /**
+     * Merges the top, right, bottom and left values of a four sided shorthand, e.g. {@code 0 1px 0px 1px} to
+     * {@code 0 1px}.
+     */
+    private static String mergeSides(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if ("\"'(/\\".indexOf(value.charAt(i)) != -1) {
+                return value;
+            }
+        }
+        String[] sides = value.split(" ");
+        if (sides.length > 4) {
+            return value;
+        }
+        for (int i = 0; i < sides.length; i++) {
+            if (ZERO_LENGTH.matcher(sides[i]).matches()) {
+                sides[i] = "0";
+            }
+        }
+        String top = sides[0];
+        String right = sides.length > 1 ? sides[1] : top;
+        String bottom = sides.length > 2 ? sides[2] : top;
+        String left = sides.length > 3 ? sides[3] : right;
+        StringBuilder result = new StringBuilder(top);
+        if (!right.equalsIgnoreCase(left)) {
+            result.append(' ').append(right).append(' ').append(bottom).append(' ').append(left);
+        } else if (!top.equalsIgnoreCase(bottom)) {
+            result.append(' ').append(right).append(' ').append(bottom);
+        } else if (!top.equalsIgnoreCase(right)) {
+            result.append(' ').append(right);
+        }
+        return result.toString();
+    }
+}
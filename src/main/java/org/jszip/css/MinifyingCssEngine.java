@@ -0,0 +1,30 @@
+package org.jszip.css;
+
+/**
+ * A {@link CssEngine} that minifies the output of another engine with a {@link CssMinifier}, so that the stylesheets
+ * from every engine are minified the same way.
+ */
+public class MinifyingCssEngine implements CssEngine {
+
+    private final CssEngine delegate;
+
+    private final CssMinifier minifier;
+
+    public MinifyingCssEngine(CssEngine delegate) {
+        this(delegate, new CssMinifier());
+    }
+
+    public MinifyingCssEngine(CssEngine delegate, CssMinifier minifier) {
+        this.delegate = delegate;
+        this.minifier = minifier;
+    }
+
+    public String mapName(String sourceFileName) {
+        return delegate.mapName(sourceFileName);
+    }
+
+    public String toCSS(String name) throws CssCompilationError {
+        String css = delegate.toCSS(name);
+        return css == null ? null : minifier.minify(css);
+    }
+}
@@ -0,0 +1,300 @@
+package org.jszip.jetty;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only snapshot of a resource's content held in a direct {@link ByteBuffer}, with the length computed
+ * once when the snapshot is taken. The snapshot has a {@value #PROTOCOL} URL of its path in context, so that
+ * the servlet context and the default servlet resolve it back to the snapshot rather than to the resource.
+ */
+public class CachedResource extends Resource {
+
+    /**
+     * The protocol of the URLs of cached resources.
+     */
+    public static final String PROTOCOL = "jszip-cache";
+
+    /**
+     * The size of the chunks used when copying the content to an output stream.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The resource that the content was read from.
+     */
+    private final Resource resource;
+
+    /**
+     * The path in context of the resource.
+     */
+    private final String path;
+
+    /**
+     * The backing file of {@link #resource} or {@code null} if the resource is not backed by a file.
+     */
+    private final File file;
+
+    /**
+     * The content.
+     */
+    private final ByteBuffer content;
+
+    /**
+     * The last modified timestamp of {@link #resource} when the content was read.
+     */
+    private final long lastModified;
+
+    /**
+     * Takes a snapshot of the supplied resource.
+     *
+     * @param path     the path in context of the resource.
+     * @param resource the resource.
+     * @throws IOException if the resource could not be read.
+     */
+    public CachedResource(String path, Resource resource) throws IOException {
+        this.resource = resource;
+        this.path = path;
+        this.lastModified = resource.lastModified();
+        File file;
+        try {
+            file = resource.getFile();
+        } catch (IOException e) {
+            file = null;
+        }
+        this.file = file;
+        byte[] bytes;
+        InputStream inputStream = resource.getInputStream();
+        try {
+            bytes = IOUtil.toByteArray(inputStream);
+        } finally {
+            IOUtil.close(inputStream);
+        }
+        this.content = ByteBuffer.allocateDirect(bytes.length);
+        this.content.put(bytes);
+        this.content.flip();
+    }
+
+    /**
+     * Returns {@code true} if the resource that the content was read from is known to have been changed since.
+     * Only file backed resources can be checked cheaply, all other resources are assumed unchanged until the
+     * cache is cleared.
+     *
+     * @return {@code true} if the content is stale.
+     */
+    public boolean isStale() {
+        return file != null && (file.lastModified() != lastModified || file.length() != content.capacity());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isContainedIn(Resource r) throws MalformedURLException {
+        return resource.isContainedIn(r);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void release() {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() {
+        return content.capacity();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public URL getURL() {
+        try {
+            return new URL(PROTOCOL, null, -1, path, new CachedURLStreamHandler());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(
+                    "MalformedURLException should not be thrown when a URLStreamHandler is provided");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getFile() throws IOException {
+        // never expose the file, otherwise it would be served directly from disk bypassing the cache
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return resource.getName();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new ByteBufferInputStream(content.duplicate());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void writeTo(OutputStream out, long start, long count) throws IOException {
+        ByteBuffer buffer = content.duplicate();
+        buffer.position((int) Math.min(buffer.limit(), Math.max(0L, start)));
+        if (count >= 0 && buffer.position() + count < buffer.limit()) {
+            buffer.limit((int) (buffer.position() + count));
+        }
+        byte[] chunk = new byte[Math.min(CHUNK_SIZE, Math.max(1, buffer.remaining()))];
+        while (buffer.hasRemaining()) {
+            int len = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, len);
+            out.write(chunk, 0, len);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public OutputStream getOutputStream() throws IOException, SecurityException {
+        throw new SecurityException("Cached resources are read-only");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean delete() throws SecurityException {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean renameTo(Resource dest) throws SecurityException {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] list() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Resource addPath(String path) throws IOException, MalformedURLException {
+        return new BadResource();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("CachedResource");
+        sb.append("{path='").append(path).append('\'');
+        sb.append(", resource=").append(resource);
+        sb.append(", length=").append(content.capacity());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Serves the content of the snapshot to those who open its URL directly, e.g. when a servlet asks the servlet
+     * context for the stream of a resource.
+     */
+    private class CachedURLStreamHandler extends URLStreamHandler {
+
+        /** {@inheritDoc} */
+        @Override
+        protected URLConnection openConnection(URL u) throws IOException {
+            return new URLConnection(u) {
+                @Override
+                public void connect() throws IOException {
+                    // no-op
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return CachedResource.this.getInputStream();
+                }
+
+                @Override
+                public int getContentLength() {
+                    return content.capacity();
+                }
+
+                @Override
+                public long getLastModified() {
+                    return lastModified;
+                }
+            };
+        }
+    }
+
+    /**
+     * An {@link InputStream} over a {@link ByteBuffer}.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public long skip(long n) throws IOException {
+            int skip = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skip);
+            return skip;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
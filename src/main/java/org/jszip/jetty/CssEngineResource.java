@@ -55,7 +55,10 @@ public class CssEngineResource extends Resource {
             } else if (sourceFile.isFile() && (!targetFile.exists() || targetFile.lastModified() < sourceFile
                     .lastModified())) {
                 try {
-                    FileUtils.fileWrite(targetFile, "utf-8", engine.toCSS(sourceFilename));
+                    String css = engine.toCSS(sourceFilename);
+                    // never write through a link created by jszip:unpack
+                    targetFile.delete();
+                    FileUtils.fileWrite(targetFile, "utf-8", css);
                 } catch (IOException e) {
                     targetFile.delete();
                 } catch (CssCompilationError cssCompilationError) {
@@ -0,0 +1,223 @@
+package org.jszip.jetty;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip compressed variant of a resource. The content is compressed once, when the variant is created, and the
+ * variant is only replaced when the timestamp of the resource changes or when the web app context is told that
+ * the resources have been regenerated, e.g. compiled CSS changes with its imports. The variant has a
+ * {@value #PROTOCOL} URL of its path in context, so that the servlet context and the default servlet resolve it
+ * back to the variant.
+ */
+class GzipResource extends Resource {
+
+    /**
+     * The protocol of the URLs of compressed variants.
+     */
+    static final String PROTOCOL = "jszip-gzip";
+
+    /**
+     * The path in context of the variant.
+     */
+    private final String path;
+
+    /**
+     * The resource that was compressed.
+     */
+    private final Resource source;
+
+    /**
+     * The last modified timestamp of {@link #source} when it was compressed.
+     */
+    private final long lastModified;
+
+    /**
+     * The compressed content.
+     */
+    private final byte[] content;
+
+    /**
+     * Compresses the content of the supplied resource.
+     *
+     * @param path   the path in context of the variant.
+     * @param source the resource to compress.
+     * @throws IOException if the content could not be read or compressed.
+     */
+    GzipResource(String path, Resource source) throws IOException {
+        this.path = path;
+        this.source = source;
+        this.lastModified = source.lastModified();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bos);
+        InputStream inputStream = source.getInputStream();
+        try {
+            IOUtil.copy(inputStream, gzip);
+        } finally {
+            IOUtil.close(inputStream);
+        }
+        gzip.close();
+        this.content = bos.toByteArray();
+    }
+
+    /**
+     * Returns {@code true} if the supplied resource has the timestamp that its content had when this variant was
+     * compressed.
+     *
+     * @param source the resource that this variant was compressed from.
+     * @return {@code true} if this variant can be served in place of the compressed content.
+     */
+    boolean isVariantOf(Resource source) {
+        return source.lastModified() == lastModified;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isContainedIn(Resource r) throws MalformedURLException {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void release() {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() {
+        return content.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public URL getURL() {
+        try {
+            return new URL(PROTOCOL, null, -1, path, new GzipURLStreamHandler());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(
+                    "MalformedURLException should not be thrown when a URLStreamHandler is provided");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getFile() throws IOException {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return source.getName() + ".gz";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new ByteArrayInputStream(content);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public OutputStream getOutputStream() throws IOException, SecurityException {
+        throw new SecurityException("Compressed variants are read-only");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean delete() throws SecurityException {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean renameTo(Resource dest) throws SecurityException {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] list() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Resource addPath(String path) throws IOException, MalformedURLException {
+        return new BadResource();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("GzipResource");
+        sb.append("{path='").append(path).append('\'');
+        sb.append(", source=").append(source);
+        sb.append(", length=").append(content.length);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Serves the compressed content to those who open the URL of the variant directly.
+     */
+    private class GzipURLStreamHandler extends URLStreamHandler {
+
+        /** {@inheritDoc} */
+        @Override
+        protected URLConnection openConnection(URL u) throws IOException {
+            return new URLConnection(u) {
+                @Override
+                public void connect() throws IOException {
+                    // no-op
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return new ByteArrayInputStream(content);
+                }
+
+                @Override
+                public int getContentLength() {
+                    return content.length;
+                }
+
+                @Override
+                public long getLastModified() {
+                    return lastModified;
+                }
+            };
+        }
+    }
+}
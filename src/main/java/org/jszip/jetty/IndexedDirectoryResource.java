@@ -0,0 +1,287 @@
+package org.jszip.jetty;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.resource.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A virtual directory tree that maps paths to resources through a hash index, so that resolving a path is a single
+ * lookup irrespective of how many resources have been registered. This replaces a chain of
+ * {@link VirtualDirectoryResource}s per resource.
+ */
+public class IndexedDirectoryResource extends Resource {
+
+    /**
+     * The resources keyed by their path (without leading or trailing {@code /}).
+     */
+    private final ConcurrentMap<String, Resource> files;
+
+    /**
+     * The names of the entries in each directory keyed by the directory path (without leading or trailing {@code /},
+     * the root directory is the empty string). Subdirectory names have a trailing {@code /}.
+     */
+    private final ConcurrentMap<String, Set<String>> directories;
+
+    /**
+     * The path of this directory (without leading or trailing {@code /}).
+     */
+    private final String path;
+
+    /**
+     * Creates an empty virtual directory tree.
+     */
+    public IndexedDirectoryResource() {
+        this.files = new ConcurrentHashMap<String, Resource>();
+        this.directories = new ConcurrentHashMap<String, Set<String>>();
+        this.directories.put("", new ConcurrentSkipListSet<String>());
+        this.path = "";
+    }
+
+    /**
+     * Creates a view of a subdirectory of a virtual directory tree.
+     *
+     * @param root the root of the tree.
+     * @param path the path of the subdirectory.
+     */
+    private IndexedDirectoryResource(IndexedDirectoryResource root, String path) {
+        this.files = root.files;
+        this.directories = root.directories;
+        this.path = path;
+    }
+
+    /**
+     * Registers a resource at the specified path, replacing any resource previously registered at that path.
+     *
+     * @param path     the path.
+     * @param resource the resource.
+     */
+    public synchronized void put(String path, Resource resource) {
+        String key = normalize(path);
+        if (StringUtils.isEmpty(key)) {
+            throw new IllegalArgumentException("Cannot register a resource as the root directory");
+        }
+        files.put(key, resource);
+        int index = key.lastIndexOf('/');
+        String name = key.substring(index + 1);
+        while (index != -1) {
+            String parent = key.substring(0, index);
+            Set<String> entries = directories.get(parent);
+            if (entries == null) {
+                entries = new ConcurrentSkipListSet<String>();
+                directories.put(parent, entries);
+            }
+            entries.add(name);
+            name = parent.substring(parent.lastIndexOf('/') + 1) + "/";
+            key = parent;
+            index = key.lastIndexOf('/');
+        }
+        directories.get("").add(name);
+    }
+
+    /**
+     * Unregisters the resource at the specified path, along with any directories left empty.
+     *
+     * @param path the path.
+     * @return the resource that was registered at the path or {@code null} if there was none.
+     */
+    public synchronized Resource remove(String path) {
+        String key = normalize(path);
+        Resource resource = files.remove(key);
+        if (resource == null) {
+            return null;
+        }
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        int index = key.lastIndexOf('/');
+        while (true) {
+            String parent = index == -1 ? "" : key.substring(0, index);
+            Set<String> entries = directories.get(parent);
+            entries.remove(name);
+            if (!entries.isEmpty() || parent.length() == 0) {
+                break;
+            }
+            directories.remove(parent);
+            name = parent.substring(parent.lastIndexOf('/') + 1) + "/";
+            key = parent;
+            index = key.lastIndexOf('/');
+        }
+        return resource;
+    }
+
+    /**
+     * Returns the resource registered at the specified path.
+     *
+     * @param path the path.
+     * @return the resource or {@code null} if no resource is registered at the path.
+     */
+    public Resource get(String path) {
+        return files.get(normalize(path));
+    }
+
+    /**
+     * Returns the number of registered resources.
+     *
+     * @return the number of registered resources.
+     */
+    public int size() {
+        return files.size();
+    }
+
+    private static String normalize(String path) {
+        String canonical = URIUtil.canonicalPath(path);
+        return StringUtils.strip(canonical == null ? path : canonical, "/");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isContainedIn(Resource resource) throws MalformedURLException {
+        return false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void release() {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isDirectory() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long lastModified() {
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public URL getURL() {
+        try {
+            return new URL("virtual", null, -1, path.length() == 0 ? "/" : "/" + path + "/",
+                    VirtualDirectoryResource.VirtualURLStreamHandler.INSTANCE);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(
+                    "MalformedURLException should not be thrown when a URLStreamHandler is provided");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public File getFile() throws IOException {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public OutputStream getOutputStream() throws IOException, SecurityException {
+        return null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean delete() throws SecurityException {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean renameTo(Resource resource) throws SecurityException {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] list() {
+        Set<String> entries = directories.get(path);
+        return entries == null ? new String[0] : entries.toArray(new String[entries.size()]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Resource addPath(String path) throws IOException, MalformedURLException {
+        if (path == null) {
+            throw new MalformedURLException();
+        }
+        String relative = normalize(path);
+        if (relative.length() == 0) {
+            return this;
+        }
+        String key = this.path.length() == 0 ? relative : this.path + "/" + relative;
+        Resource resource = files.get(key);
+        if (resource != null) {
+            return resource;
+        }
+        if (directories.containsKey(key)) {
+            return new IndexedDirectoryResource(this, key);
+        }
+        return new BadResource();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("IndexedDirectoryResource");
+        sb.append("{url='virtual:/").append(path).append('\'');
+        sb.append(", size=").append(files.size());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IndexedDirectoryResource)) {
+            return false;
+        }
+
+        IndexedDirectoryResource that = (IndexedDirectoryResource) o;
+
+        return path.equals(that.path) && files.equals(that.files);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 31 * path.hashCode() + files.hashCode();
+    }
+}
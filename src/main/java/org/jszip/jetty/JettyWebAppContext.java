@@ -20,16 +20,21 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jetty.plus.webapp.EnvConfiguration;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
 import org.eclipse.jetty.webapp.Configuration;
@@ -51,8 +56,13 @@ import org.eclipse.jetty.webapp.WebXmlConfiguration;
  */
 public class JettyWebAppContext extends WebAppContext
 {
+    private static final Logger LOG = Log.getLogger(JettyWebAppContext.class);
     private static final String WEB_INF_CLASSES_PREFIX = "/WEB-INF/classes";
     private static final String WEB_INF_LIB_PREFIX = "/WEB-INF/lib";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String DEFAULT_SERVLET_GZIP = "org.eclipse.jetty.servlet.Default.gzip";
+    private static final Set<String> PRECOMPRESS_EXTENSIONS = new HashSet<String>(Arrays.asList(
+            "css", "js", "json", "html", "htm", "svg", "txt", "xml", "map"));
 
     private final List<File> webInfClasses = new ArrayList<File>();
     private final List<File> webInfJars = new ArrayList<File>();
@@ -63,6 +73,9 @@ public class JettyWebAppContext extends WebAppContext
     private List<Resource> overlays;
     private boolean unpackOverlays;
     private String containerIncludeJarPattern = ".*/servlet-api-[^/]*\\.jar$";
+    private ResourceCache resourceCache;
+    private boolean precompress;
+    private final ConcurrentMap<String, GzipResource> gzipResources = new ConcurrentHashMap<String, GzipResource>();
 
     public JettyWebAppContext ()
     throws Exception
@@ -167,6 +180,37 @@ public class JettyWebAppContext extends WebAppContext
         return webInfJars;
     }
 
+    public ResourceCache getResourceCache()
+    {
+        return resourceCache;
+    }
+
+    /**
+     * Sets the cache to use for the content of static resources.
+     * @param resourceCache the cache or <code>null</code> to disable caching.
+     */
+    public void setResourceCache(ResourceCache resourceCache)
+    {
+        this.resourceCache = resourceCache;
+    }
+
+    public boolean isPrecompress()
+    {
+        return precompress;
+    }
+
+    /**
+     * Enables serving gzip compressed variants of text resources to clients that accept them. The variants are
+     * compressed on first request and only recompressed when the resource changes.
+     * @param precompress <code>true</code> to serve compressed variants.
+     */
+    public void setPrecompress(boolean precompress)
+    {
+        this.precompress = precompress;
+        setInitParameter(DEFAULT_SERVLET_GZIP, Boolean.toString(precompress));
+        gzipResources.clear();
+    }
+
     public void doStart () throws Exception
     {
         setAttribute(WebInfConfiguration.CONTAINER_JAR_PATTERN, containerIncludeJarPattern);
@@ -200,8 +244,36 @@ public class JettyWebAppContext extends WebAppContext
     public Resource getResource(String uriInContext) throws MalformedURLException
     {
         Resource resource = null;
+        // Try the cache of static resources
+        ResourceCache resourceCache = this.resourceCache;
+        String cacheKey = null;
+        if (resourceCache != null && uriInContext != null)
+        {
+            cacheKey = URIUtil.canonicalPath(uriInContext);
+            if (cacheKey != null && !cacheKey.startsWith("/WEB-INF") && !cacheKey.startsWith("/META-INF"))
+            {
+                resource = resourceCache.get(cacheKey);
+                if (resource != null)
+                    return resource;
+            }
+            else
+                cacheKey = null;
+        }
+
         // Try to get regular resource
         resource = super.getResource(uriInContext);
+        if (cacheKey != null && resource != null)
+            resource = resourceCache.put(cacheKey, resource);
+
+        // If no regular resource exists check for a compressed variant of a text resource
+        if ((resource == null || !resource.exists()) && precompress && uriInContext != null
+                && uriInContext.endsWith(GZIP_SUFFIX))
+        {
+            Resource variant =
+                    getGzipResource(uriInContext.substring(0, uriInContext.length() - GZIP_SUFFIX.length()), false);
+            if (variant != null)
+                return variant;
+        }
 
         // If no regular resource exists check for access to /WEB-INF/lib or /WEB-INF/classes
         if ((resource == null || !resource.exists()) && uriInContext != null && webInfClasses != null)
@@ -255,6 +327,61 @@ public class JettyWebAppContext extends WebAppContext
         return resource;
     }
 
+    private Resource getGzipResource(String uriInContext, boolean recompress) throws MalformedURLException
+    {
+        String uri = URIUtil.canonicalPath(uriInContext);
+        if (uri == null || uri.startsWith("/WEB-INF") || uri.startsWith("/META-INF"))
+            return null;
+        int index = uri.lastIndexOf('.');
+        if (index == -1 || uri.indexOf('/', index) != -1
+                || !PRECOMPRESS_EXTENSIONS.contains(uri.substring(index + 1).toLowerCase()))
+            return null;
+        Resource source = getResource(uri);
+        if (source == null || !source.exists() || source.isDirectory())
+        {
+            gzipResources.remove(uri);
+            return null;
+        }
+        GzipResource variant = gzipResources.get(uri);
+        if (variant == null || recompress || !variant.isVariantOf(source))
+        {
+            try
+            {
+                variant = new GzipResource(uri + GZIP_SUFFIX, source);
+                gzipResources.put(uri, variant);
+            }
+            catch (IOException e)
+            {
+                LOG.ignore(e);
+                gzipResources.remove(uri);
+                return null;
+            }
+        }
+        return variant;
+    }
+
+    /**
+     * Recompresses the variants that have been served so far, so that the compression happens when the resources
+     * are regenerated rather than on the next request. Changes that do not touch the timestamp of a resource, such
+     * as a changed import of a stylesheet, are only picked up here.
+     */
+    public void refreshGzipResources()
+    {
+        if (!precompress)
+            return;
+        for (String uri : gzipResources.keySet())
+        {
+            try
+            {
+                getGzipResource(uri, true);
+            }
+            catch (MalformedURLException e)
+            {
+                gzipResources.remove(uri);
+            }
+        }
+    }
+
     @Override
     public Set<String> getResourcePaths(String path)
     {
@@ -298,6 +425,12 @@ public class JettyWebAppContext extends WebAppContext
             // serve virtual URLs if asked to
             return getBaseResource().getResource(url.getPath());
         }
+        if (url != null && (StringUtils.equals(CachedResource.PROTOCOL, url.getProtocol())
+                || StringUtils.equals(GzipResource.PROTOCOL, url.getProtocol()))) {
+            // the default servlet resolves resources through their URLs, resolve cached and compressed ones back
+            // to their snapshots
+            return getResource(url.getPath());
+        }
         return super.newResource(url);
     }
 
@@ -0,0 +1,116 @@
+package org.jszip.jetty;
+
+import org.eclipse.jetty.util.resource.Resource;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used, cache of the content of static resources.
+ */
+public class ResourceCache {
+
+    /**
+     * The maximum total number of bytes of content to hold.
+     */
+    private final long maxSize;
+
+    /**
+     * The maximum size of an individual resource that will be cached.
+     */
+    private final long maxFileSize;
+
+    /**
+     * The cached resources keyed by path in context, in access order.
+     */
+    private final LinkedHashMap<String, CachedResource> entries =
+            new LinkedHashMap<String, CachedResource>(64, 0.75f, true);
+
+    /**
+     * The total number of bytes of content currently held.
+     */
+    private long size;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize     the maximum total number of bytes of content to hold.
+     * @param maxFileSize the maximum size of an individual resource that will be cached.
+     */
+    public ResourceCache(long maxSize, long maxFileSize) {
+        this.maxSize = maxSize;
+        this.maxFileSize = Math.min(maxSize, maxFileSize);
+    }
+
+    /**
+     * Returns the cached resource for the path.
+     *
+     * @param path the path in context.
+     * @return the cached resource or {@code null} if the path is not cached.
+     */
+    public synchronized Resource get(String path) {
+        CachedResource resource = entries.get(path);
+        if (resource != null && resource.isStale()) {
+            entries.remove(path);
+            size -= resource.length();
+            return null;
+        }
+        return resource;
+    }
+
+    /**
+     * Caches the content of the resource if it is eligible for caching.
+     *
+     * @param path     the path in context.
+     * @param resource the resource.
+     * @return the resource to serve, either the cached copy or the supplied resource.
+     */
+    public Resource put(String path, Resource resource) {
+        if (!isCacheable(resource)) {
+            return resource;
+        }
+        CachedResource cached;
+        try {
+            cached = new CachedResource(path, resource);
+        } catch (IOException e) {
+            return resource;
+        }
+        synchronized (this) {
+            CachedResource previous = entries.put(path, cached);
+            if (previous != null) {
+                size -= previous.length();
+            }
+            size += cached.length();
+            Iterator<Map.Entry<String, CachedResource>> iterator = entries.entrySet().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                size -= iterator.next().getValue().length();
+                iterator.remove();
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Removes all the cached resources.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private boolean isCacheable(Resource resource) {
+        if (resource == null || resource instanceof CachedResource || !resource.exists() || resource.isDirectory()) {
+            return false;
+        }
+        long length = resource.length();
+        if (length < 0 || length > maxFileSize) {
+            return false;
+        }
+        // only plain files and zip entries, generated resources track their own state
+        URL url = resource.getURL();
+        return url != null && ("file".equals(url.getProtocol()) || "jar".equals(url.getProtocol()));
+    }
+}
@@ -233,11 +233,11 @@ public class VirtualDirectoryResource extends Resource {
      * {@link URLStreamHandler} otherwise Java will try to look up the protocol and fail thereby throwing the
      * dreaded {@link MalformedURLException}.
      */
-    private static class VirtualURLStreamHandler extends URLStreamHandler {
+    static class VirtualURLStreamHandler extends URLStreamHandler {
         /**
          * The singleton instance.
          */
-        private static final VirtualURLStreamHandler INSTANCE = new VirtualURLStreamHandler();
+        static final VirtualURLStreamHandler INSTANCE = new VirtualURLStreamHandler();
 
         /**
          * {@inheritDoc}
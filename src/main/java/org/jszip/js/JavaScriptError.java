@@ -0,0 +1,51 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.js;
+
+/**
+ * A script run by a {@link JavaScriptScope} failed.
+ */
+public class JavaScriptError extends Exception {
+
+    private final int line;
+
+    private final int column;
+
+    public JavaScriptError(String message, int line, int column, Throwable cause) {
+        super(message, cause);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Returns the line where the error occurred.
+     *
+     * @return the line, or {@code -1} if not known.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column where the error occurred.
+     *
+     * @return the column, or {@code -1} if not known.
+     */
+    public int getColumn() {
+        return column;
+    }
+}
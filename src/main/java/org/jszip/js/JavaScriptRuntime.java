@@ -0,0 +1,49 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.js;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jszip.pseudo.io.PseudoFileSystem;
+
+/**
+ * A JavaScript implementation that the LESS compiler and the r.js optimizer can run on. Rhino is always available,
+ * other implementations are found with {@link java.util.ServiceLoader}, so adding one to the dependencies of the
+ * plugin makes it available to the {@code javascriptEngine} parameter of the mojos.
+ */
+public interface JavaScriptRuntime {
+
+    /**
+     * Returns the name used to select this runtime.
+     *
+     * @return the name of the runtime.
+     */
+    String getName();
+
+    /**
+     * Creates a new top level scope. The scope defines {@code print}, {@code debug} and {@code warn} writing to the
+     * log, {@code quit} setting the {@link JavaScriptScope#getExitCode()}, and {@code java.io.File} and the
+     * {@code java.io} streams, readers and writers backed by the pseudo file system.
+     *
+     * @param fs             the file system scripts see.
+     * @param pseudoReadFile {@code true} to define {@code readFile} reading from the pseudo file system,
+     *                       {@code false} to keep the runtime's own {@code readFile}, if it has one.
+     * @param log            the log.
+     * @return the new scope.
+     * @throws JavaScriptError if the scope could not be created.
+     */
+    JavaScriptScope newScope(PseudoFileSystem fs, boolean pseudoReadFile, Log log) throws JavaScriptError;
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.js;
+
+/**
+ * A top level JavaScript scope created by a {@link JavaScriptRuntime}. Values passed in may be strings, numbers,
+ * booleans, {@code null} or arrays of those. Values returned are strings, numbers, booleans or {@code null}, with
+ * objects returned as a {@link java.util.Map} of their properties.
+ */
+public interface JavaScriptScope {
+
+    /**
+     * Defines a variable in the scope.
+     *
+     * @param name  the name of the variable.
+     * @param value the value.
+     */
+    void define(String name, Object value);
+
+    /**
+     * Runs a script in the scope.
+     *
+     * @param source     the source of the script.
+     * @param sourceName the name of the script, for error messages.
+     * @param lineNo     the line number of the start of the source.
+     * @return the value of the script.
+     * @throws JavaScriptError if the script fails.
+     */
+    Object execute(String source, String sourceName, int lineNo) throws JavaScriptError;
+
+    /**
+     * Calls a function defined in the scope.
+     *
+     * @param functionName the name of the function.
+     * @param args         the arguments.
+     * @return the value returned by the function.
+     * @throws JavaScriptError if the function is not defined or fails.
+     */
+    Object call(String functionName, Object... args) throws JavaScriptError;
+
+    /**
+     * Returns the exit code passed to {@code quit} by the last {@link #execute(String, String, int)} or
+     * {@link #call(String, Object...)}.
+     *
+     * @return the exit code, {@code 0} if {@code quit} was not called.
+     */
+    int getExitCode();
+}
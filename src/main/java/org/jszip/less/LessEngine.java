@@ -1,24 +1,14 @@
 package org.jszip.less;
 
 import org.apache.maven.plugin.logging.Log;
-import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 import org.jszip.css.CssCompilationError;
 import org.jszip.css.CssEngine;
+import org.jszip.js.JavaScriptError;
+import org.jszip.js.JavaScriptRuntime;
+import org.jszip.js.JavaScriptScope;
 import org.jszip.pseudo.io.PseudoFileSystem;
-import org.jszip.rhino.GlobalFunctions;
-import org.jszip.rhino.JavaScriptTerminationException;
-import org.jszip.rhino.MavenLogErrorReporter;
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
-import org.mozilla.javascript.Function;
-import org.mozilla.javascript.JavaScriptException;
-import org.mozilla.javascript.Script;
-import org.mozilla.javascript.Scriptable;
-import org.mozilla.javascript.ScriptableObject;
-import org.mozilla.javascript.tools.shell.Global;
-import org.mozilla.javascript.tools.shell.QuitAction;
-import org.mozilla.javascript.tools.shell.ShellContextFactory;
+import org.jszip.rhino.RhinoRuntime;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -32,64 +22,54 @@ import java.io.InputStreamReader;
  */
 public class LessEngine implements CssEngine {
 
-    private final PseudoFileSystem fs;
-    private final ContextFactory contextFactory;
-    private final Global global;
-    private final Scriptable scope;
+    private final JavaScriptScope scope;
     private final Log log;
     private final boolean lessCompress;
-    private final boolean showErrorExtracts;
-    private final Function function;
     private final String encoding;
 
     public LessEngine(PseudoFileSystem fs, String encoding, Log log, boolean lessCompress, File customLessScript,
                       boolean showErrorExtracts) throws IOException {
-        this.fs = fs;
+        this(fs, encoding, log, lessCompress, customLessScript, showErrorExtracts, new RhinoRuntime());
+    }
+
+    /**
+     * Creates a LESS engine.
+     *
+     * @param optimizationLevel the Rhino optimization level to compile the scripts with, from {@code -1} (interpreted)
+     *                          to {@code 9}.
+     * @param classCache        the directory to keep the compiled scripts in between builds or {@code null}.
+     */
+    public LessEngine(PseudoFileSystem fs, String encoding, Log log, boolean lessCompress, File customLessScript,
+                      boolean showErrorExtracts, int optimizationLevel, File classCache) throws IOException {
+        this(fs, encoding, log, lessCompress, customLessScript, showErrorExtracts,
+                new RhinoRuntime(optimizationLevel, classCache));
+    }
+
+    /**
+     * Creates a LESS engine.
+     *
+     * @param runtime the JavaScript runtime to run the LESS compiler on.
+     */
+    public LessEngine(PseudoFileSystem fs, String encoding, Log log, boolean lessCompress, File customLessScript,
+                      boolean showErrorExtracts, JavaScriptRuntime runtime) throws IOException {
         this.encoding = encoding;
         this.lessCompress = lessCompress;
-        this.showErrorExtracts = showErrorExtracts;
-        this.contextFactory = new ShellContextFactory();
-        this.global = new Global();
         this.log = log;
-        global.initQuitAction(new QuitAction() {
-            public void quit(Context context, int exitCode) {
-                if (exitCode != 0) {
-                    throw new JavaScriptTerminationException("Script exited with exit code of " + exitCode, exitCode);
-                }
-            }
-        });
-        if (!global.isInitialized()) {
-            global.init(contextFactory);
-        }
-        global.defineFunctionProperties(new String[]{"print", "debug", "warn", "quit", "readFile"},
-                GlobalFunctions.class,
-                ScriptableObject.DONTENUM);
-        final Context context = contextFactory.enterContext();
         try {
-            context.setErrorReporter(new MavenLogErrorReporter(log));
-            context.putThreadLocal(Log.class, log);
-            global.defineProperty("arguments", new Object[0], ScriptableObject.DONTENUM);
-            scope = GlobalFunctions.createPseudoFileSystemScope(global, context);
+            scope = runtime.newScope(fs, true, log);
 
-            compileScript(context, "less-env.js", null, "/org/jszip/less/less-env.js")
-                    .exec(context, scope);
+            executeScript("less-env.js", null, "/org/jszip/less/less-env.js");
 
             // now load less-rhino.js
 
-            compileScript(context, "less-rhino.js", customLessScript, "/org/jszip/less/less-rhino.js")
-                    .exec(context, scope);
+            executeScript("less-rhino.js", customLessScript, "/org/jszip/less/less-rhino.js");
 
-            global.defineProperty("showErrorExtracts", showErrorExtracts, ScriptableObject.DONTENUM);
+            scope.define("showErrorExtracts", showErrorExtracts);
 
-            compileScript(context, "less-engine.js", null, "/org/jszip/less/less-engine.js")
-                    .exec(context, scope);
-
-            function = (Function) scope.get("engine", scope);
-
-        } finally {
-            fs.removeFromContext();
-            Context.exit();
-            context.putThreadLocal(Log.class, null);
+            executeScript("less-engine.js", null, "/org/jszip/less/less-engine.js");
+        } catch (JavaScriptError e) {
+            throw new IOException("Could not load the LESS compiler on " + runtime.getName() + ": " + e.getMessage(),
+                    e);
         }
     }
 
@@ -98,42 +78,22 @@ public class LessEngine implements CssEngine {
     }
 
     public String toCSS(String name) throws CssCompilationError {
-
-        final Context context = contextFactory.enterContext();
         try {
-            context.setErrorReporter(new MavenLogErrorReporter(log));
-            context.putThreadLocal(Log.class, log);
-            fs.installInContext();
-
-            GlobalFunctions.setExitCode(0);
-
-            final String result =
-                    (String) function.call(context, scope, scope, new Object[]{name, encoding, lessCompress});
+            final Object result = scope.call("engine", name, encoding, lessCompress);
 
             // check for errors
 
-            final Integer exitCode = GlobalFunctions.getExitCode();
-            if (exitCode != 0) {
+            if (scope.getExitCode() != 0) {
                 throw new CssCompilationError(name, -1, -1);
             }
-            return result;
-        } catch (JavaScriptException e) {
-            if (e.getValue() instanceof Scriptable) {
-                Scriptable jse = (Scriptable) e.getValue();
-                int line = jse.has("line", jse) ? ((Number) jse.get("line", jse)).intValue() : -1;
-                int col = jse.has("col", jse) ? ((Number) jse.get("col", jse)).intValue() : -1;
-                throw new CssCompilationError(name, line, col, e);
-            }
-            throw new CssCompilationError(name, -1, -1, e);
-        } finally {
-            fs.removeFromContext();
-            Context.exit();
-            context.putThreadLocal(Log.class, null);
+            return (String) result;
+        } catch (JavaScriptError e) {
+            throw new CssCompilationError(name, e.getLine(), e.getColumn(), e);
         }
     }
 
-    private Script compileScript(Context context, String scriptName, File customScriptFile,
-                                 String bundledScriptResource) throws IOException {
+    private void executeScript(String scriptName, File customScriptFile, String bundledScriptResource)
+            throws IOException, JavaScriptError {
         String source;
         int lineNo = 0;
         InputStream inputStream = null;
@@ -160,7 +120,7 @@ public class LessEngine implements CssEngine {
             IOUtil.close(reader);
             IOUtil.close(inputStream);
         }
-        return context.compileString(source, scriptName, lineNo, null);
+        scope.execute(source, scriptName, lineNo);
     }
 
 }
@@ -17,12 +17,17 @@
 package org.jszip.maven;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MavenPluginManager;
 import org.apache.maven.plugin.Mojo;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.PluginConfigurationException;
+import org.apache.maven.plugin.PluginContainerException;
 import org.apache.maven.plugin.descriptor.MojoDescriptor;
 import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -31,12 +36,16 @@ import org.codehaus.plexus.configuration.PlexusConfiguration;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomUtils;
+import org.jszip.js.JavaScriptRuntime;
+import org.jszip.rhino.RhinoRuntime;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.ServiceLoader;
 
 /**
  * Common base class for all the JSZip goals.
@@ -47,6 +56,11 @@ public abstract class AbstractJSZipMojo extends AbstractMojo {
      */
     public static final String JSZIP_TYPE = "jszip";
 
+    /**
+     * The key of the {@link ReactorDirectories} in a reactor module's project context.
+     */
+    private static final String REACTOR_DIRECTORIES_KEY = AbstractJSZipMojo.class.getName() + ".reactorDirectories";
+
     /**
      * The maven project.
      */
@@ -184,6 +198,61 @@ public abstract class AbstractJSZipMojo extends AbstractMojo {
         return dom;
     }
 
+    /**
+     * Returns the content and resources directories configured for the {@link JSZipMojo} executions of a reactor
+     * module. Configuring the mojo is expensive, so the directories are resolved once per build and remembered in
+     * the reactor module's project context, shared by every mojo of every module.
+     *
+     * @param session            the current build session.
+     * @param mavenPluginManager the plugin manager used to configure the mojo.
+     * @param pluginDescriptor   this plugin's descriptor.
+     * @param fromReactor        the reactor module.
+     * @return the content and resources directories of each execution in order, whether they exist or not.
+     * @throws MojoExecutionException if the mojo could not be configured.
+     */
+    protected List<File> getReactorDirectories(MavenSession session, MavenPluginManager mavenPluginManager,
+                                               PluginDescriptor pluginDescriptor, MavenProject fromReactor)
+            throws MojoExecutionException {
+        Object cached = fromReactor.getContextValue(REACTOR_DIRECTORIES_KEY);
+        if (cached instanceof ReactorDirectories && ((ReactorDirectories) cached).request == session.getRequest()
+                && StringUtils.equals(((ReactorDirectories) cached).pluginVersion, pluginVersion)) {
+            return ((ReactorDirectories) cached).directories;
+        }
+        List<File> result = new ArrayList<File>();
+        session = session.clone();
+        session.setCurrentProject(fromReactor);
+        Plugin plugin = findThisPluginInProject(fromReactor);
+        try {
+            // we cheat here and use our version of the plugin... but this is less of a cheat than the only
+            // other way which is via reflection.
+            MojoDescriptor jszipDescriptor = findMojoDescriptor(pluginDescriptor, JSZipMojo.class);
+
+            for (PluginExecution pluginExecution : plugin.getExecutions()) {
+                if (!pluginExecution.getGoals().contains(jszipDescriptor.getGoal())) {
+                    continue;
+                }
+                MojoExecution mojoExecution =
+                        createMojoExecution(plugin, pluginExecution, jszipDescriptor);
+                JSZipMojo mojo = (JSZipMojo) mavenPluginManager
+                        .getConfiguredMojo(Mojo.class, session, mojoExecution);
+                try {
+                    result.add(mojo.getContentDirectory());
+                    result.add(mojo.getResourcesDirectory());
+                } finally {
+                    mavenPluginManager.releaseMojo(mojo, mojoExecution);
+                }
+            }
+        } catch (PluginConfigurationException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (PluginContainerException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        result = Collections.unmodifiableList(result);
+        fromReactor.setContextValue(REACTOR_DIRECTORIES_KEY,
+                new ReactorDirectories(session.getRequest(), pluginVersion, result));
+        return result;
+    }
+
     protected MavenProject findProject(List<MavenProject> projects, Artifact artifact) {
         for (MavenProject project : projects) {
             if (StringUtils.equals(artifact.getGroupId(), project.getGroupId())
@@ -204,4 +273,51 @@ public abstract class AbstractJSZipMojo extends AbstractMojo {
         return result.toArray(new String[result.size()]);
     }
 
+    /**
+     * Returns the JavaScript runtime to run scripts on.
+     *
+     * @param name                   the name of the runtime, {@code rhino} or the name of a {@link JavaScriptRuntime}
+     *                               registered with {@link ServiceLoader} on the plugin's classpath.
+     * @param rhinoOptimizationLevel the optimization level used when the runtime is Rhino.
+     * @param rhinoClassCache        the directory for compiled scripts used when the runtime is Rhino.
+     * @return the runtime.
+     * @throws MojoExecutionException if there is no runtime of that name.
+     */
+    protected JavaScriptRuntime createJavaScriptRuntime(String name, int rhinoOptimizationLevel, File rhinoClassCache)
+            throws MojoExecutionException {
+        if (StringUtils.isEmpty(name) || RhinoRuntime.NAME.equals(name)) {
+            if (rhinoOptimizationLevel < -1 || rhinoOptimizationLevel > 9) {
+                throw new MojoExecutionException(
+                        "rhinoOptimizationLevel must be between -1 and 9, was " + rhinoOptimizationLevel);
+            }
+            return new RhinoRuntime(rhinoOptimizationLevel, rhinoClassCache);
+        }
+        List<String> names = new ArrayList<String>();
+        names.add(RhinoRuntime.NAME);
+        for (JavaScriptRuntime runtime : ServiceLoader.load(JavaScriptRuntime.class, getClass().getClassLoader())) {
+            if (name.equals(runtime.getName())) {
+                getLog().debug("Using the " + name + " JavaScript runtime " + runtime.getClass().getName());
+                return runtime;
+            }
+            names.add(runtime.getName());
+        }
+        throw new MojoExecutionException(
+                "Unknown javascriptEngine '" + name + "', available engines are: " + StringUtils.join(names.iterator(),
+                        ", "));
+    }
+
+    /**
+     * The directories of a reactor module's {@link JSZipMojo} executions, resolved earlier in the same build.
+     */
+    private static class ReactorDirectories {
+        private final MavenExecutionRequest request;
+        private final String pluginVersion;
+        private final List<File> directories;
+
+        private ReactorDirectories(MavenExecutionRequest request, String pluginVersion, List<File> directories) {
+            this.request = request;
+            this.pluginVersion = pluginVersion;
+            this.directories = directories;
+        }
+    }
 }
@@ -2,15 +2,10 @@ package org.jszip.maven;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
-import org.apache.maven.model.Plugin;
-import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.MavenPluginManager;
-import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugin.PluginConfigurationException;
-import org.apache.maven.plugin.PluginContainerException;
-import org.apache.maven.plugin.descriptor.MojoDescriptor;
 import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -21,11 +16,13 @@ import org.apache.maven.shared.artifact.filter.collection.ProjectTransitivityFil
 import org.apache.maven.shared.artifact.filter.collection.ScopeFilter;
 import org.apache.maven.shared.artifact.filter.collection.TypeFilter;
 import org.codehaus.plexus.util.StringUtils;
+import org.jszip.pseudo.io.PseudoDirectoryScanner;
 import org.jszip.pseudo.io.PseudoFileSystem;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -34,6 +31,11 @@ import java.util.Set;
  * @since 21/12/2012 15:02
  */
 public abstract class AbstractPseudoFileSystemProcessorMojo extends AbstractJSZipMojo {
+    /**
+     * The key of the {@link CachedLayers} in the project's context.
+     */
+    private static final String LAYERS_KEY = AbstractPseudoFileSystemProcessorMojo.class.getName() + ".layers";
+
     /**
      * The directory where the webapp is built.
      */
@@ -54,6 +56,11 @@ public abstract class AbstractPseudoFileSystemProcessorMojo extends AbstractJSZi
      */
     @Parameter(defaultValue = "${basedir}/src/main/webapp", required = true)
     private File warSourceDirectory;
+    /**
+     * The number of threads used to scan the virtual filesystem for files to process.
+     */
+    @Parameter(property = "jszip.scan.threads", defaultValue = "1")
+    private int scanThreads;
     /**
      * The Maven plugin Manager
      */
@@ -70,11 +77,66 @@ public abstract class AbstractPseudoFileSystemProcessorMojo extends AbstractJSZi
     @Parameter(property = "plugin", readonly = true)
     private PluginDescriptor pluginDescriptor;
 
+    /**
+     * Creates a scanner of the virtual filesystem.
+     *
+     * @param fs the virtual filesystem.
+     * @return the scanner.
+     */
+    protected PseudoDirectoryScanner createScanner(PseudoFileSystem fs) {
+        PseudoDirectoryScanner scanner = new PseudoDirectoryScanner();
+        scanner.setFileSystem(fs);
+        scanner.setThreads(scanThreads);
+        return scanner;
+    }
+
     private String getPath(Artifact artifact) {
         return Mapping.getArtifactPath(mappings, artifact);
     }
 
+    /**
+     * Returns the layers of the virtual filesystem. The layers are computed once per module and build, and then
+     * shared through the project's context by all the processor mojos with the same configuration.
+     *
+     * @return the layers of the virtual filesystem.
+     * @throws MojoExecutionException if the layers could not be computed.
+     */
     protected List<PseudoFileSystem.Layer> buildVirtualFileSystemLayers() throws MojoExecutionException {
+        String signature = getLayersSignature();
+        Object cached = project.getContextValue(LAYERS_KEY);
+        if (cached instanceof CachedLayers && ((CachedLayers) cached).request == session.getRequest()
+                && ((CachedLayers) cached).signature.equals(signature)) {
+            getLog().debug("Reusing the virtual filesystem of a previous execution");
+            return new ArrayList<PseudoFileSystem.Layer>(((CachedLayers) cached).layers);
+        }
+        List<PseudoFileSystem.Layer> layers = computeVirtualFileSystemLayers();
+        project.setContextValue(LAYERS_KEY, new CachedLayers(session.getRequest(), signature,
+                Collections.unmodifiableList(new ArrayList<PseudoFileSystem.Layer>(layers))));
+        return layers;
+    }
+
+    /**
+     * Returns a string identifying everything that the layers depend on.
+     *
+     * @return a string identifying everything that the layers depend on.
+     */
+    private String getLayersSignature() {
+        StringBuilder signature = new StringBuilder();
+        signature.append(pluginDescriptor == null ? "" : pluginDescriptor.getVersion()).append('\n');
+        signature.append(webappDirectory.getAbsolutePath()).append('\n');
+        signature.append(warSourceDirectory.getAbsolutePath()).append('\n');
+        if (mappings != null) {
+            for (Mapping mapping : mappings) {
+                signature.append(mapping.getSelect()).append('=').append(mapping.getPath()).append('\n');
+            }
+        }
+        for (Artifact artifact : project.getArtifacts()) {
+            signature.append(artifact.getId()).append('=').append(artifact.getFile()).append('\n');
+        }
+        return signature.toString();
+    }
+
+    private List<PseudoFileSystem.Layer> computeVirtualFileSystemLayers() throws MojoExecutionException {
         List<PseudoFileSystem.Layer> layers = new ArrayList<PseudoFileSystem.Layer>();
         layers.add(new PseudoFileSystem.FileLayer("/target", webappDirectory));
         layers.add(new PseudoFileSystem.FileLayer("/virtual", warSourceDirectory));
@@ -103,41 +165,12 @@ public abstract class AbstractPseudoFileSystemProcessorMojo extends AbstractJSZi
             if (file.isDirectory()) {
                 MavenProject fromReactor = findProject(reactorProjects, artifact);
                 if (fromReactor != null) {
-                    MavenSession session = this.session.clone();
-                    session.setCurrentProject(fromReactor);
-                    Plugin plugin = findThisPluginInProject(fromReactor);
-                    try {
-                        // we cheat here and use our version of the plugin... but this is less of a cheat than the only
-                        // other way which is via reflection.
-                        MojoDescriptor jszipDescriptor = findMojoDescriptor(this.pluginDescriptor, JSZipMojo.class);
-
-                        for (PluginExecution pluginExecution : plugin.getExecutions()) {
-                            if (!pluginExecution.getGoals().contains(jszipDescriptor.getGoal())) {
-                                continue;
-                            }
-                            MojoExecution mojoExecution =
-                                    createMojoExecution(plugin, pluginExecution, jszipDescriptor);
-                            JSZipMojo mojo = (JSZipMojo) mavenPluginManager
-                                    .getConfiguredMojo(org.apache.maven.plugin.Mojo.class, session, mojoExecution);
-                            try {
-                                File contentDirectory = mojo.getContentDirectory();
-                                if (contentDirectory.isDirectory()) {
-                                    getLog().debug("Merging directory " + contentDirectory + " into " + path);
-                                    layers.add(new PseudoFileSystem.FileLayer(path, contentDirectory));
-                                }
-                                File resourcesDirectory = mojo.getResourcesDirectory();
-                                if (resourcesDirectory.isDirectory()) {
-                                    getLog().debug("Merging directory " + contentDirectory + " into " + path);
-                                    layers.add(new PseudoFileSystem.FileLayer(path, resourcesDirectory));
-                                }
-                            } finally {
-                                mavenPluginManager.releaseMojo(mojo, mojoExecution);
-                            }
+                    for (File directory : getReactorDirectories(session, mavenPluginManager, pluginDescriptor,
+                            fromReactor)) {
+                        if (directory.isDirectory()) {
+                            getLog().debug("Merging directory " + directory + " into " + path);
+                            layers.add(new PseudoFileSystem.FileLayer(path, directory));
                         }
-                    } catch (PluginConfigurationException e) {
-                        throw new MojoExecutionException(e.getMessage(), e);
-                    } catch (PluginContainerException e) {
-                        throw new MojoExecutionException(e.getMessage(), e);
                     }
                 } else {
                     throw new MojoExecutionException("Cannot find jzsip artifact: " + artifact.getId());
@@ -153,4 +186,19 @@ public abstract class AbstractPseudoFileSystemProcessorMojo extends AbstractJSZi
         }
         return layers;
     }
+
+    /**
+     * The layers computed by a previous execution in the same build.
+     */
+    private static class CachedLayers {
+        private final MavenExecutionRequest request;
+        private final String signature;
+        private final List<PseudoFileSystem.Layer> layers;
+
+        private CachedLayers(MavenExecutionRequest request, String signature, List<PseudoFileSystem.Layer> layers) {
+            this.request = request;
+            this.signature = signature;
+            this.layers = layers;
+        }
+    }
 }
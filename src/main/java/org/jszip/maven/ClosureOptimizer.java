@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.maven;
+
+import com.google.javascript.jscomp.CommandLineRunner;
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.JSError;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.jscomp.Result;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Minifies JavaScript files in place with the Closure Compiler, using a pool of threads. Each file is compiled on its
+ * own by a {@link Compiler} of its own, as compilers are not thread safe, against the default externs, which are
+ * only read once.
+ */
+class ClosureOptimizer {
+
+    private final Log log;
+
+    private final CompilationLevel compilationLevel;
+
+    private final int threads;
+
+    ClosureOptimizer(Log log, CompilationLevel compilationLevel, int threads) {
+        this.log = log;
+        this.compilationLevel = compilationLevel;
+        this.threads = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    /**
+     * Minifies the files, replacing their content with the compiled code.
+     *
+     * @param files the files.
+     * @throws IOException if a file could not be read or written or did not compile.
+     */
+    void optimize(List<File> files) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        Compiler.setLoggingLevel(Level.OFF);
+        // the externs are shared as source code, each compiler gets its own source files
+        final Map<String, String> externs = new LinkedHashMap<String, String>();
+        for (SourceFile extern : CommandLineRunner.getDefaultExterns()) {
+            externs.put(extern.getName(), extern.getCode());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<?>> compilations = new ArrayList<Future<?>>();
+            for (File file : files) {
+                compilations.add(executor.submit(new Compilation(file, externs)));
+            }
+            for (Future<?> compilation : compilations) {
+                get(compilation);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Compiled " + files.size() + " JavaScript files with the Closure Compiler (" + compilationLevel + ")");
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while compiling");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+        }
+    }
+
+    private class Compilation implements Callable<Void> {
+        private final File file;
+        private final Map<String, String> externs;
+
+        private Compilation(File file, Map<String, String> externs) {
+            this.file = file;
+            this.externs = externs;
+        }
+
+        public Void call() throws IOException {
+            List<SourceFile> externFiles = new ArrayList<SourceFile>(externs.size());
+            for (Map.Entry<String, String> extern : externs.entrySet()) {
+                externFiles.add(SourceFile.fromCode(extern.getKey(), extern.getValue()));
+            }
+            CompilerOptions options = new CompilerOptions();
+            compilationLevel.setOptionsForCompilationLevel(options);
+            Compiler compiler = new Compiler();
+            Result result = compiler.compile(externFiles,
+                    Collections.singletonList(SourceFile.fromCode(file.getName(), FileUtils.fileRead(file, "UTF-8"))),
+                    options);
+            for (JSError warning : result.warnings) {
+                log.debug(file + ": " + warning);
+            }
+            if (!result.success) {
+                StringBuilder message = new StringBuilder("Could not compile ").append(file);
+                for (JSError error : result.errors) {
+                    message.append("\n  ").append(error);
+                }
+                throw new IOException(message.toString());
+            }
+            // never write through a link created by jszip:unpack
+            file.delete();
+            FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", compiler.toSource());
+            log.debug("Compiled " + file);
+            return null;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.codehaus.plexus.util.IOUtil;
 import org.jszip.css.CssCompilationError;
 import org.jszip.css.CssEngine;
+import org.jszip.css.MinifyingCssEngine;
 import org.jszip.less.LessEngine;
 import org.jszip.pseudo.io.PseudoDirectoryScanner;
 import org.jszip.pseudo.io.PseudoFile;
@@ -32,8 +33,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 @Mojo(name = "compile-less", defaultPhase = LifecyclePhase.PROCESS_RESOURCES,
@@ -64,6 +63,13 @@ public class CompileLESSMojo extends AbstractPseudoFileSystemProcessorMojo {
     @Parameter(property = "jszip.less.compress", defaultValue = "true")
     private boolean lessCompress;
 
+    /**
+     * Minify the compiled CSS with the built-in Java minifier. For LESS this replaces {@code lessCompress}, which is
+     * then skipped.
+     */
+    @Parameter(property = "jszip.css.minify", defaultValue = "false")
+    private boolean cssMinify;
+
     /**
      * Indicates whether the build will continue even if there are compilation errors.
      */
@@ -76,6 +82,30 @@ public class CompileLESSMojo extends AbstractPseudoFileSystemProcessorMojo {
     @Parameter(property = "jszip.less.showErrorExtracts", defaultValue = "false")
     private boolean showErrorExtracts;
 
+    /**
+     * The Rhino optimization level used to compile the LESS scripts, from {@code -1} (interpreted) to {@code 9}.
+     * Scripts that cannot be compiled at this level are interpreted.
+     */
+    @Parameter(property = "jszip.rhino.optimizationLevel", defaultValue = "9")
+    private int rhinoOptimizationLevel;
+
+    /**
+     * The directory where the LESS scripts compiled to Java classes are kept between builds, keyed by the hash of the
+     * script and the compiler settings, so that later builds load the classes instead of compiling the scripts again.
+     * Set it to a directory outside the build directory, e.g. {@code ${settings.localRepository}/.cache/jszip/rhino},
+     * to share the classes between projects and keep them across {@code mvn clean}. The classes found there are
+     * loaded into the build, so only use a directory that nothing but trusted builds can write to.
+     */
+    @Parameter(property = "jszip.rhino.classCache", defaultValue = "${project.build.directory}/jszip-rhino-cache")
+    private File rhinoClassCache;
+
+    /**
+     * The JavaScript runtime to run the LESS compiler on, {@code rhino} or the name of another runtime added to the
+     * plugin's dependencies.
+     */
+    @Parameter(property = "jszip.javascript.engine", defaultValue = "rhino")
+    private String javascriptEngine;
+
     /**
      * A list of &lt;include&gt; elements specifying the less files (by pattern) that should be included in
      * processing.
@@ -114,13 +144,15 @@ public class CompileLESSMojo extends AbstractPseudoFileSystemProcessorMojo {
         final List<PseudoFileSystem.Layer> layers = buildVirtualFileSystemLayers();
         final PseudoFileSystem fs = new PseudoFileSystem(layers);
         try {
-            CssEngine engine = new LessEngine(fs, encoding == null ? "utf-8" : encoding, getLog(), lessCompress, customLessScript, showErrorExtracts);
+            CssEngine engine = new LessEngine(fs, encoding == null ? "utf-8" : encoding, getLog(), lessCompress && !cssMinify, customLessScript, showErrorExtracts,
+                    createJavaScriptRuntime(javascriptEngine, rhinoOptimizationLevel, rhinoClassCache));
+            if (cssMinify) {
+                engine = new MinifyingCssEngine(engine);
+            }
 
             // look for files to compile
 
-            PseudoDirectoryScanner scanner = new PseudoDirectoryScanner();
-
-            scanner.setFileSystem(fs);
+            PseudoDirectoryScanner scanner = createScanner(fs);
 
             scanner.setBasedir(fs.getPseudoFile("/virtual"));
 
@@ -136,12 +168,7 @@ public class CompileLESSMojo extends AbstractPseudoFileSystemProcessorMojo {
                 scanner.setExcludes(new String[0]);
             }
 
-            scanner.scan();
-
-            final List<String> includedFiles = new ArrayList<String>(Arrays.asList(scanner.getIncludedFiles()));
-            getLog().debug("Files to compile: " + includedFiles);
-
-            for (String fileName : includedFiles) {
+            for (String fileName : scanner.includedFiles()) {
                 final PseudoFile dest = fs.getPseudoFile("/target/" + engine.mapName(fileName));
                 if (!lessForceIfOlder) {
                     if (dest.isFile()) {
@@ -155,6 +182,7 @@ public class CompileLESSMojo extends AbstractPseudoFileSystemProcessorMojo {
                     dest.getParentFile().mkdirs();
                 }
 
+                getLog().debug("Compiling " + fileName);
                 final String css = engine.toCSS("/virtual/" + fileName);
                 PseudoFileOutputStream fos = null;
                 try {
@@ -170,6 +198,8 @@ public class CompileLESSMojo extends AbstractPseudoFileSystemProcessorMojo {
             throw new MojoFailureException("Compilation failure: " + e.getMessage(), e);
         } catch (IOException e) {
             throw new MojoExecutionException("Could not instantiate compiler: " + e.getMessage(), e);
+        } finally {
+            fs.close();
         }
     }
 }
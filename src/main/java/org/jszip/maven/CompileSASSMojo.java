@@ -13,6 +13,7 @@ import org.jruby.embed.ScriptingContainer;
 import org.jruby.javasupport.JavaEmbedUtils;
 import org.jszip.css.CssCompilationError;
 import org.jszip.css.CssEngine;
+import org.jszip.css.MinifyingCssEngine;
 import org.jszip.pseudo.io.PseudoDirectoryScanner;
 import org.jszip.pseudo.io.PseudoFile;
 import org.jszip.pseudo.io.PseudoFileOutputStream;
@@ -25,8 +26,6 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 @Mojo(name = "compile-sass", defaultPhase = LifecyclePhase.PROCESS_RESOURCES,
@@ -51,6 +50,12 @@ public class CompileSASSMojo extends AbstractPseudoFileSystemProcessorMojo {
     @Parameter(property = "jszip.sass.failOnError", defaultValue = "true")
     private boolean sassFailOnError;
 
+    /**
+     * Minify the compiled CSS with the built-in Java minifier.
+     */
+    @Parameter(property = "jszip.css.minify", defaultValue = "false")
+    private boolean cssMinify;
+
     /**
      * A list of &lt;include&gt; elements specifying the sass files (by pattern) that should be included in
      * processing.
@@ -90,12 +95,13 @@ public class CompileSASSMojo extends AbstractPseudoFileSystemProcessorMojo {
         final PseudoFileSystem fs = new PseudoFileSystem(layers);
         try {
             CssEngine engine = new SassEngine(fs, encoding == null ? "utf-8" : encoding);
+            if (cssMinify) {
+                engine = new MinifyingCssEngine(engine);
+            }
 
             // look for files to compile
 
-            PseudoDirectoryScanner scanner = new PseudoDirectoryScanner();
-
-            scanner.setFileSystem(fs);
+            PseudoDirectoryScanner scanner = createScanner(fs);
 
             scanner.setBasedir(fs.getPseudoFile("/virtual"));
 
@@ -111,12 +117,7 @@ public class CompileSASSMojo extends AbstractPseudoFileSystemProcessorMojo {
                 scanner.setExcludes(new String[]{"**/_*.sass","**/_*.scss"});
             }
 
-            scanner.scan();
-
-            final List<String> includedFiles = new ArrayList<String>(Arrays.asList(scanner.getIncludedFiles()));
-            getLog().debug("Files to compile: " + includedFiles);
-
-            for (String fileName : includedFiles) {
+            for (String fileName : scanner.includedFiles()) {
                 final PseudoFile dest = fs.getPseudoFile("/target/" + engine.mapName(fileName));
                 if (!sassForceIfOlder) {
                     if (dest.isFile()) {
@@ -130,6 +131,7 @@ public class CompileSASSMojo extends AbstractPseudoFileSystemProcessorMojo {
                     dest.getParentFile().mkdirs();
                 }
 
+                getLog().debug("Compiling " + fileName);
                 final String css = engine.toCSS("/virtual/" + fileName);
                 PseudoFileOutputStream fos = null;
                 try {
@@ -145,6 +147,8 @@ public class CompileSASSMojo extends AbstractPseudoFileSystemProcessorMojo {
             throw new MojoFailureException("Compilation failure: " + e.getMessage(), e);
         } catch (IOException e) {
             throw new MojoExecutionException("Could not instantiate compiler: " + e.getMessage(), e);
+        } finally {
+            fs.close();
         }
     }
 }
@@ -35,23 +35,34 @@ import org.apache.maven.shared.artifact.filter.collection.ScopeFilter;
 import org.apache.maven.shared.artifact.filter.collection.TypeFilter;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.zip.ZipArchiver;
 import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResource;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
+import org.jszip.zip.ParallelZipArchiver;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.TreeMap;
 
 /**
@@ -105,7 +116,8 @@ public class JSZipMojo extends AbstractJSZipMojo {
     private boolean includeEmptyDirs;
 
     /**
-     * Whether creating the archive should be forced.
+     * Whether creating the archive should be forced. Otherwise an existing archive is reused, without touching it,
+     * when neither the configuration nor any of the files going into it have changed since it was created.
      */
     @Parameter(property = "zip.forceCreation", defaultValue = "false")
     private boolean forceCreation;
@@ -116,6 +128,28 @@ public class JSZipMojo extends AbstractJSZipMojo {
     @Parameter(property = "zip.addMavenDescriptor", defaultValue = "true")
     private boolean addMavenDescriptor;
 
+    /**
+     * The engine used to create the zip file: {@code plexus} uses the Plexus zip archiver, {@code parallel} deflates
+     * the entries in parallel and produces byte-for-byte reproducible output (entries in name order, all with the
+     * timestamp given by {@link #outputTimestamp}, already compressed file types stored without recompression).
+     */
+    @Parameter(property = "zip.engine", defaultValue = "plexus")
+    private String engine;
+
+    /**
+     * The number of threads used by the {@code parallel} engine, {@code 0} to use one per processor.
+     */
+    @Parameter(property = "zip.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * The timestamp given to every entry by the {@code parallel} engine, either as seconds since the epoch or
+     * formatted as {@code yyyy-MM-dd'T'HH:mm:ss'Z'}. Defaults to 1980-01-01T00:00:00Z, the earliest time a zip file
+     * can record.
+     */
+    @Parameter(property = "zip.outputTimestamp")
+    private String outputTimestamp;
+
     /**
      * Maven ProjectHelper.
      */
@@ -145,38 +179,36 @@ public class JSZipMojo extends AbstractJSZipMojo {
      */
     public void execute()
             throws MojoExecutionException, MojoFailureException {
+        if (!"plexus".equals(engine) && !"parallel".equals(engine)) {
+            throw new MojoExecutionException("Unsupported engine '" + engine
+                    + "', supported values are plexus and parallel");
+        }
         try {
 
             File zipFile = getZipFile(outputDirectory, finalName, classifier);
 
-            zipArchiver.setDestFile(zipFile);
-            zipArchiver.setIncludeEmptyDirs(includeEmptyDirs);
-            zipArchiver.setCompress(true);
-            zipArchiver.setForced(forceCreation);
+            if (addMavenDescriptor && project.getArtifact().isSnapshot()) {
+                project.setVersion(project.getArtifact().getVersion());
+            }
 
-            if (addMavenDescriptor) {
-                if (project.getArtifact().isSnapshot()) {
-                    project.setVersion(project.getArtifact().getVersion());
+            // the fingerprint of the inputs is recorded next to the zip so that an unchanged zip can be reused
+            // as is, keeping its timestamp and so also the caches of anything that reads it
+            File fingerprintFile = new File(zipFile.getPath() + ".fingerprint");
+            String fingerprint = fingerprint();
+            if (!forceCreation && zipFile.isFile() && fingerprintFile.isFile()
+                    && (fingerprint + ":" + zipFile.length() + ":" + zipFile.lastModified())
+                    .equals(FileUtils.fileRead(fingerprintFile, "UTF-8").trim())) {
+                getLog().info("Reusing unchanged " + zipFile);
+            } else {
+                fingerprintFile.delete();
+                if ("parallel".equals(engine)) {
+                    createParallelArchive(zipFile);
+                } else {
+                    createPlexusArchive(zipFile);
                 }
-
-                String groupId = project.getGroupId();
-
-                String artifactId = project.getArtifactId();
-
-                zipArchiver.addFile(project.getFile(), "META-INF/maven/" + groupId + "/" + artifactId + "/pom.xml");
-                zipArchiver.addResource(new PomPropertiesResource(project),
-                        "META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties",
-                        zipArchiver.getOverrideFileMode());
+                FileUtils.fileWrite(fingerprintFile, "UTF-8",
+                        fingerprint + ":" + zipFile.length() + ":" + zipFile.lastModified());
             }
-            zipArchiver.addResource(new PackageJsonResource(project), "package.json",
-                    zipArchiver.getOverrideFileMode());
-            if (contentDirectory.isDirectory()) {
-                zipArchiver.addDirectory(contentDirectory);
-            }
-            if (resourcesDirectory.isDirectory()) {
-                zipArchiver.addDirectory(resourcesDirectory);
-            }
-            zipArchiver.createArchive();
 
             if (StringUtils.isEmpty(classifier)) {
                 project.getArtifact().setFile(zipFile);
@@ -203,6 +235,136 @@ public class JSZipMojo extends AbstractJSZipMojo {
 
     }
 
+    /**
+     * Computes a fingerprint of everything that goes into the zip file: the configuration, the generated
+     * descriptors and the content of every file.
+     *
+     * @return the fingerprint.
+     * @throws IOException if the inputs could not be read.
+     * @throws MojoExecutionException if the descriptors could not be generated.
+     */
+    private String fingerprint() throws IOException, MojoExecutionException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM is required to support SHA-1", e);
+        }
+        digest.update(("engine=" + engine + "\nincludeEmptyDirs=" + includeEmptyDirs + "\naddMavenDescriptor="
+                + addMavenDescriptor + "\noutputTimestamp=" + outputTimestamp + "\n").getBytes("UTF-8"));
+        if (addMavenDescriptor) {
+            digest.update(FileUtils.fileRead(project.getFile(), "UTF-8").getBytes("UTF-8"));
+            digest.update(new PomPropertiesResource(project).bytes);
+        }
+        digest.update(new PackageJsonResource(project).bytes);
+        byte[] buffer = new byte[8192];
+        for (File directory : new File[]{contentDirectory, resourcesDirectory}) {
+            digest.update(("\n" + directory.getAbsolutePath() + "\n").getBytes("UTF-8"));
+            if (!directory.isDirectory()) {
+                continue;
+            }
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir(directory);
+            scanner.addDefaultExcludes();
+            scanner.scan();
+            String[] directories = scanner.getIncludedDirectories();
+            Arrays.sort(directories);
+            for (String name : directories) {
+                digest.update((name.replace(File.separatorChar, '/') + "/\n").getBytes("UTF-8"));
+            }
+            String[] files = scanner.getIncludedFiles();
+            Arrays.sort(files);
+            for (String name : files) {
+                File file = new File(directory, name);
+                digest.update((name.replace(File.separatorChar, '/') + "=" + file.length() + "\n").getBytes("UTF-8"));
+                InputStream in = new FileInputStream(file);
+                try {
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, count);
+                    }
+                } finally {
+                    IOUtil.close(in);
+                }
+            }
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        for (byte b : digest.digest()) {
+            fingerprint.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+        }
+        return fingerprint.toString();
+    }
+
+    private void createPlexusArchive(File zipFile)
+            throws IOException, ArchiverException, MojoExecutionException {
+        zipArchiver.setDestFile(zipFile);
+        zipArchiver.setIncludeEmptyDirs(includeEmptyDirs);
+        zipArchiver.setCompress(true);
+        zipArchiver.setForced(forceCreation);
+
+        if (addMavenDescriptor) {
+            String groupId = project.getGroupId();
+
+            String artifactId = project.getArtifactId();
+
+            zipArchiver.addFile(project.getFile(), "META-INF/maven/" + groupId + "/" + artifactId + "/pom.xml");
+            zipArchiver.addResource(new PomPropertiesResource(project),
+                    "META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties",
+                    zipArchiver.getOverrideFileMode());
+        }
+        zipArchiver.addResource(new PackageJsonResource(project), "package.json",
+                zipArchiver.getOverrideFileMode());
+        if (contentDirectory.isDirectory()) {
+            zipArchiver.addDirectory(contentDirectory);
+        }
+        if (resourcesDirectory.isDirectory()) {
+            zipArchiver.addDirectory(resourcesDirectory);
+        }
+        zipArchiver.createArchive();
+    }
+
+    private void createParallelArchive(File zipFile) throws IOException, MojoExecutionException {
+        ParallelZipArchiver archiver = new ParallelZipArchiver();
+        archiver.setThreads(threads);
+        archiver.setIncludeEmptyDirs(includeEmptyDirs);
+        if (StringUtils.isNotBlank(outputTimestamp)) {
+            archiver.setTimestamp(parseOutputTimestamp(outputTimestamp));
+        }
+
+        if (addMavenDescriptor) {
+            String groupId = project.getGroupId();
+
+            String artifactId = project.getArtifactId();
+
+            archiver.addFile(project.getFile(), "META-INF/maven/" + groupId + "/" + artifactId + "/pom.xml");
+            archiver.addBytes(new PomPropertiesResource(project).bytes,
+                    "META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties");
+        }
+        archiver.addBytes(new PackageJsonResource(project).bytes, "package.json");
+        if (contentDirectory.isDirectory()) {
+            archiver.addDirectory(contentDirectory);
+        }
+        if (resourcesDirectory.isDirectory()) {
+            archiver.addDirectory(resourcesDirectory);
+        }
+        archiver.createArchive(zipFile);
+    }
+
+    private static long parseOutputTimestamp(String value) throws MojoExecutionException {
+        value = value.trim();
+        if (value.matches("\\d+")) {
+            return Long.parseLong(value) * 1000L;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new MojoExecutionException("Invalid outputTimestamp '" + value
+                    + "', expected seconds since the epoch or yyyy-MM-dd'T'HH:mm:ss'Z'", e);
+        }
+    }
+
     private static class PackageJsonResource extends AbstractPlexusIoResource {
         private final byte[] bytes;
         private final long lastModified;
@@ -351,7 +513,14 @@ public class JSZipMojo extends AbstractJSZipMojo {
                 IOUtil.close(os);
             }
 
-            bytes = os.toByteArray();
+            // drop the date comment that Properties.store always writes so that the content is reproducible
+            String content = os.toString("ISO-8859-1");
+            int start = content.indexOf('\n') + 1;
+            int end = content.indexOf('\n', start) + 1;
+            if (start > 0 && end > start && content.charAt(start) == '#') {
+                content = content.substring(0, start) + content.substring(end);
+            }
+            bytes = content.getBytes("ISO-8859-1");
         }
 
         @Override
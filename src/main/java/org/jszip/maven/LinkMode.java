@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.maven;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * How the files of directory overlays are placed into the webapp. Links are created with {@code java.nio.file}
+ * through reflection, as the plugin also runs on Java 6, and fall back to copying whenever a link cannot be
+ * created (for example on Java 6, across file systems, or where the file system does not support links).
+ */
+enum LinkMode {
+    /**
+     * Copy the files.
+     */
+    COPY,
+    /**
+     * Hard link the files.
+     */
+    HARDLINK,
+    /**
+     * Symbolically link the files.
+     */
+    SYMLINK;
+
+    private static final Method TO_PATH;
+    private static final Method CREATE_LINK;
+    private static final Method CREATE_SYMBOLIC_LINK;
+    private static final Object NO_ATTRIBUTES;
+
+    static {
+        Method toPath = null;
+        Method createLink = null;
+        Method createSymbolicLink = null;
+        Object noAttributes = null;
+        try {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Class<?> filesClass = Class.forName("java.nio.file.Files");
+            Class<?> attributeClass = Class.forName("java.nio.file.attribute.FileAttribute");
+            noAttributes = Array.newInstance(attributeClass, 0);
+            toPath = File.class.getMethod("toPath");
+            createLink = filesClass.getMethod("createLink", pathClass, pathClass);
+            createSymbolicLink =
+                    filesClass.getMethod("createSymbolicLink", pathClass, pathClass, noAttributes.getClass());
+        } catch (ClassNotFoundException e) {
+            // Java 6, links are not available
+        } catch (NoSuchMethodException e) {
+            // Java 6, links are not available
+        }
+        TO_PATH = toPath;
+        CREATE_LINK = createLink;
+        CREATE_SYMBOLIC_LINK = createSymbolicLink;
+        NO_ATTRIBUTES = noAttributes;
+    }
+
+    /**
+     * Parses a link mode.
+     *
+     * @param value the link mode name, case insensitive, {@code null} for {@link #COPY}.
+     * @return the link mode.
+     * @throws IllegalArgumentException if the value is not a link mode.
+     */
+    static LinkMode parse(String value) {
+        return value == null ? COPY : valueOf(value.trim().toUpperCase());
+    }
+
+    /**
+     * Tries to link the target file to the source file. Any existing target file is removed first.
+     *
+     * @param source the source file.
+     * @param target the target file.
+     * @return {@code true} if the link was created, {@code false} if the file needs to be copied instead.
+     */
+    boolean link(File source, File target) {
+        if (this == COPY || TO_PATH == null) {
+            return false;
+        }
+        target.getParentFile().mkdirs();
+        if (target.exists() && !target.delete()) {
+            return false;
+        }
+        try {
+            if (this == HARDLINK) {
+                CREATE_LINK.invoke(null, TO_PATH.invoke(target), TO_PATH.invoke(source));
+            } else {
+                CREATE_SYMBOLIC_LINK.invoke(null, TO_PATH.invoke(target), TO_PATH.invoke(source.getAbsoluteFile()),
+                        NO_ATTRIBUTES);
+            }
+            return true;
+        } catch (InvocationTargetException e) {
+            // e.g. cross-device links or file systems without link support
+            return false;
+        } catch (IllegalAccessException e) {
+            return false;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.jszip.maven;
 
+import com.google.javascript.jscomp.CompilationLevel;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -24,24 +25,28 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.IOUtil;
+import org.jszip.js.JavaScriptError;
+import org.jszip.js.JavaScriptRuntime;
 import org.jszip.pseudo.io.PseudoFileSystem;
 import org.jszip.rhino.JavaScriptTerminationException;
 import org.jszip.rhino.OptimizeContextAction;
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextFactory;
-import org.mozilla.javascript.JavaScriptException;
-import org.mozilla.javascript.tools.shell.Global;
-import org.mozilla.javascript.tools.shell.QuitAction;
-import org.mozilla.javascript.tools.shell.ShellContextFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Runs the r.js optimizer over the source
@@ -93,6 +98,59 @@ public class OptimizeMojo extends AbstractPseudoFileSystemProcessorMojo {
     @Parameter(property = "excludes")
     private List<String> excludes;
 
+    /**
+     * Write a gzip compressed variant ({@code .gz}) next to every JavaScript and CSS file that is written by the
+     * optimizer, so that they can be served with {@code Content-Encoding: gzip}.
+     */
+    @Parameter(property = "jszip.optimize.precompress", defaultValue = "false")
+    private boolean precompress;
+
+    /**
+     * Minify the JavaScript with the Closure Compiler instead of the r.js optimizer. r.js is then run with
+     * {@code optimize=none} and each JavaScript file that it writes is compiled by the Closure Compiler afterwards.
+     * As r.js copies the whole application directory into the webapp directory, this is every {@code *.js} file
+     * under the webapp directory that r.js created or changed, not only the modules of the build profile.
+     */
+    @Parameter(property = "jszip.optimize.closure", defaultValue = "false")
+    private boolean closure;
+
+    /**
+     * The Closure Compiler compilation level: {@code WHITESPACE_ONLY}, {@code SIMPLE_OPTIMIZATIONS} or
+     * {@code ADVANCED_OPTIMIZATIONS}.
+     */
+    @Parameter(property = "jszip.optimize.closure.compilationLevel", defaultValue = "SIMPLE_OPTIMIZATIONS")
+    private String closureCompilationLevel;
+
+    /**
+     * The number of threads used to run the Closure Compiler, {@code 0} to use one per processor.
+     */
+    @Parameter(property = "jszip.optimize.closure.threads", defaultValue = "0")
+    private int closureThreads;
+
+    /**
+     * The JavaScript runtime to run the r.js optimizer on, {@code rhino} or the name of another runtime added to the
+     * plugin's dependencies.
+     */
+    @Parameter(property = "jszip.javascript.engine", defaultValue = "rhino")
+    private String javascriptEngine;
+
+    /**
+     * The Rhino optimization level used to compile the r.js optimizer and the build profiles, from {@code -1}
+     * (interpreted) to {@code 9}. Scripts that cannot be compiled at this level are interpreted.
+     */
+    @Parameter(property = "jszip.rhino.optimizationLevel", defaultValue = "9")
+    private int rhinoOptimizationLevel;
+
+    /**
+     * The directory where the scripts compiled to Java classes are kept between builds, keyed by the hash of the
+     * script and the compiler settings, so that later builds load the classes instead of compiling the scripts again.
+     * Set it to a directory outside the build directory, e.g. {@code ${settings.localRepository}/.cache/jszip/rhino},
+     * to share the classes between projects and keep them across {@code mvn clean}. The classes found there are
+     * loaded into the build, so only use a directory that nothing but trusted builds can write to.
+     */
+    @Parameter(property = "jszip.rhino.classCache", defaultValue = "${project.build.directory}/jszip-rhino-cache")
+    private File rhinoClassCache;
+
     /**
      * @see org.apache.maven.plugin.Mojo#execute()
      */
@@ -114,6 +172,16 @@ public class OptimizeMojo extends AbstractPseudoFileSystemProcessorMojo {
         if (!webappDirectory.isDirectory() && !webappDirectory.mkdirs()) {
             throw new MojoExecutionException("Could not create Webapp directory '" + webappDirectory + "'");
         }
+        CompilationLevel compilationLevel = null;
+        if (closure) {
+            try {
+                compilationLevel = CompilationLevel.valueOf(closureCompilationLevel);
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Unknown Closure Compiler compilation level '"
+                        + closureCompilationLevel + "', expected one of "
+                        + Arrays.asList(CompilationLevel.values()));
+            }
+        }
         String source;
         int lineNo = 0;
         InputStream inputStream = null;
@@ -154,18 +222,13 @@ public class OptimizeMojo extends AbstractPseudoFileSystemProcessorMojo {
 
         List<PseudoFileSystem.Layer> layers = buildVirtualFileSystemLayers();
 
-        final ContextFactory contextFactory = new ShellContextFactory();
-        final Global global = new Global();
-        global.initQuitAction(new QuitAction() {
-            public void quit(Context context, int exitCode) {
-                if (exitCode != 0) {
-                    throw new JavaScriptTerminationException("Script exited with exit code of " + exitCode, exitCode);
-                }
-            }
-        });
-        if (!global.isInitialized()) {
-            global.init(contextFactory);
-        }
+        // the optimizer's output is told apart from the files of earlier goals by comparing against the files as they
+        // were before r.js ran, as file systems may only have a one second resolution for timestamps
+        String[] outputIncludes = precompress ? new String[]{"**/*.js", "**/*.css"} : new String[]{"**/*.js"};
+        Map<String, String> existing = getStamps(outputIncludes);
+
+        final JavaScriptRuntime runtime =
+                createJavaScriptRuntime(javascriptEngine, rhinoOptimizationLevel, rhinoClassCache);
         DirectoryScanner scanner = new DirectoryScanner();
 
         scanner.setBasedir(contentDirectory);
@@ -184,28 +247,108 @@ public class OptimizeMojo extends AbstractPseudoFileSystemProcessorMojo {
 
         scanner.scan();
 
-        for (String path : scanner.getIncludedFiles()) {
-            File profileJs = new File(contentDirectory, path);
-            PseudoFileSystem.Layer[] layersArray = layers.toArray(new PseudoFileSystem.Layer[layers.size() + 1]);
-            layersArray[layers.size()] = new PseudoFileSystem.FileLayer("build", profileJs.getParentFile());
-            try {
-                Object rv = contextFactory
-                        .call(new OptimizeContextAction(getLog(), global, profileJs, source, lineNo, layersArray));
-                if (rv instanceof Number) {
-                    if (((Number) rv).intValue() != 0) {
+        try {
+            for (String path : scanner.getIncludedFiles()) {
+                File profileJs = new File(contentDirectory, path);
+                PseudoFileSystem.Layer[] layersArray = layers.toArray(new PseudoFileSystem.Layer[layers.size() + 1]);
+                layersArray[layers.size()] = new PseudoFileSystem.FileLayer("build", profileJs.getParentFile());
+                try {
+                    OptimizeContextAction action =
+                            new OptimizeContextAction(getLog(), runtime, profileJs, source, lineNo, layersArray);
+                    action.setSkipMinification(closure);
+                    int rv = action.run();
+                    if (rv != 0) {
                         throw new MojoExecutionException(
-                                "Non-zero exit code of " + ((Number) rv).intValue()
-                                        + " when trying to optimize profile " + profileJs);
+                                "Non-zero exit code of " + rv + " when trying to optimize profile " + profileJs);
                     }
+                } catch (JavaScriptError e) {
+                    throw new MojoExecutionException(
+                            "Uncaught exception when trying to optimize profile " + profileJs, e);
+                } catch (JavaScriptTerminationException e) {
+                    throw new MojoExecutionException("Non-zero exit code of " + e.getExitCode()
+                            + " when trying to optimize profile " + profileJs);
                 }
-            } catch (JavaScriptException e) {
-                throw new MojoExecutionException(
-                        "Uncaught exception when trying to optimize profile " + profileJs, e);
-            } catch (JavaScriptTerminationException e) {
-                throw new MojoExecutionException(
-                        "Non-zero exit code of " + e.getExitCode() + " when trying to optimize profile " + profileJs);
+            }
+        } finally {
+            // the profiles share the layers, so their zip files are only closed once all of them are optimized
+            for (PseudoFileSystem.Layer layer : layers) {
+                layer.close();
+            }
+        }
+        if (closure) {
+            try {
+                new ClosureOptimizer(getLog(), compilationLevel, closureThreads)
+                        .optimize(getOutputFiles(new String[]{"**/*.js"}, existing));
+            } catch (IOException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+        if (precompress) {
+            precompressOutput(existing);
+        }
+    }
+
+    /**
+     * Returns the length and last modified time of the files in the webapp directory.
+     *
+     * @param includes the patterns of the files.
+     * @return the length and last modified time of each file, keyed by its path relative to the webapp directory.
+     */
+    private Map<String, String> getStamps(String[] includes) {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(webappDirectory);
+        scanner.setIncludes(includes);
+        scanner.scan();
+        Map<String, String> stamps = new HashMap<String, String>();
+        for (String path : scanner.getIncludedFiles()) {
+            File file = new File(webappDirectory, path);
+            stamps.put(path, file.length() + ":" + file.lastModified());
+        }
+        return stamps;
+    }
+
+    /**
+     * Returns the files in the webapp directory that were written by the optimizer.
+     *
+     * @param includes the patterns of the files.
+     * @param existing the {@link #getStamps(String[])} of the files before the optimizer ran.
+     * @return the files that were added or changed since.
+     */
+    private List<File> getOutputFiles(String[] includes, Map<String, String> existing) {
+        List<File> files = new ArrayList<File>();
+        for (Map.Entry<String, String> stamp : getStamps(includes).entrySet()) {
+            if (!stamp.getValue().equals(existing.get(stamp.getKey()))) {
+                files.add(new File(webappDirectory, stamp.getKey()));
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private void precompressOutput(Map<String, String> existing) throws MojoExecutionException {
+        int count = 0;
+        // files not written by the optimizer are skipped, as any existing variant is still valid
+        for (File file : getOutputFiles(new String[]{"**/*.js", "**/*.css"}, existing)) {
+            File gzFile = new File(file.getPath() + ".gz");
+            InputStream inputStream = null;
+            OutputStream outputStream = null;
+            try {
+                inputStream = new FileInputStream(file);
+                // never write through a link created by jszip:unpack
+                gzFile.delete();
+                outputStream = new GZIPOutputStream(new FileOutputStream(gzFile));
+                IOUtil.copy(inputStream, outputStream);
+                outputStream.close();
+                outputStream = null;
+                count++;
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not compress " + file, e);
+            } finally {
+                IOUtil.close(outputStream);
+                IOUtil.close(inputStream);
             }
         }
+        getLog().info("Wrote " + count + " precompressed variants");
     }
 
 }
@@ -0,0 +1,487 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.maven;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.codehaus.plexus.util.StringUtils;
+import org.jszip.zip.ZipIndex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Unpacks a sequence of overlays (zip files and directories) into their locations using a pool of threads. The
+ * overlays are scanned concurrently and merged into a single index of target file to the overlay that provides it,
+ * where (as when unpacking the overlays one after another) the overlay that was added last wins. Each target file
+ * is then written exactly once, with the writes spread across the pool.
+ * <p/>
+ * When a manifest file is provided, the index is recorded in it and the next unpack only writes the target files
+ * whose content or providing overlay has changed (or which have gone missing or been modified since) and deletes the
+ * target files that are no longer provided by any overlay. Zip files that are unchanged since the last unpack are
+ * not even opened.
+ */
+class OverlayUnpacker {
+
+    private final Log log;
+
+    private final int threads;
+
+    private final List<Overlay> overlays = new ArrayList<Overlay>();
+
+    private File manifestFile;
+
+    private LinkMode linkMode = LinkMode.COPY;
+
+    OverlayUnpacker(Log log, int threads) {
+        this.log = log;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Enables incremental unpacking.
+     *
+     * @param manifestFile the file to record what was unpacked in, or {@code null} to always unpack everything.
+     */
+    void setManifestFile(File manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Sets how the files of directory overlays are placed into their locations.
+     *
+     * @param linkMode the link mode.
+     */
+    void setLinkMode(LinkMode linkMode) {
+        this.linkMode = linkMode == null ? LinkMode.COPY : linkMode;
+    }
+
+    /**
+     * Adds a zip file to be unpacked.
+     *
+     * @param zipFile  the zip file.
+     * @param location the directory to unpack into.
+     * @param includes the patterns of the entries to unpack or {@code null} to unpack all entries.
+     * @param excludes the patterns of the entries not to unpack or {@code null}.
+     */
+    void addZip(File zipFile, File location, String[] includes, String[] excludes) {
+        overlays.add(new Overlay(zipFile, location, includes, excludes));
+    }
+
+    /**
+     * Adds a directory to be copied, selecting the same files as {@code FileUtils.copyDirectory} did.
+     *
+     * @param directory the directory.
+     * @param location  the directory to copy into.
+     */
+    void addDirectory(File directory, File location) {
+        overlays.add(new Overlay(directory, location, null, null));
+    }
+
+    /**
+     * Unpacks all the overlays.
+     *
+     * @throws IOException if an overlay could not be unpacked.
+     */
+    void unpack() throws IOException {
+        UnpackManifest previous = null;
+        if (manifestFile != null) {
+            try {
+                previous = UnpackManifest.load(manifestFile);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable unpack manifest " + manifestFile + ": " + e.getMessage());
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Map<Integer, ZipFile> zipFiles = new HashMap<Integer, ZipFile>();
+        try {
+            List<Future<UnpackManifest.Record>> scans = new ArrayList<Future<UnpackManifest.Record>>();
+            for (Overlay overlay : overlays) {
+                scans.add(executor.submit(new Scan(overlay, previous)));
+            }
+            UnpackManifest current = new UnpackManifest();
+            for (Future<UnpackManifest.Record> scan : scans) {
+                current.add(get(scan));
+            }
+
+            Map<File, Owner> owners = index(current);
+            Map<File, Owner> previousOwners =
+                    previous == null ? Collections.<File, Owner>emptyMap() : index(previous);
+
+            for (UnpackManifest.Record record : current.getRecords()) {
+                record.getLocation().mkdirs();
+                for (String name : record.getDirectories()) {
+                    new File(record.getLocation(), name).mkdirs();
+                }
+            }
+            List<Future<?>> writes = new ArrayList<Future<?>>();
+            int unchanged = 0;
+            for (Map.Entry<File, Owner> entry : owners.entrySet()) {
+                File target = entry.getKey();
+                Owner owner = entry.getValue();
+                if (previous != null && owner.isSameAs(previousOwners.get(target)) && target.isFile()
+                        && stamp(target).equals(previousOwners.get(target).stamp)) {
+                    unchanged++;
+                    continue;
+                }
+                Overlay overlay = overlays.get(owner.index);
+                if (overlay.source.isDirectory()) {
+                    writes.add(executor.submit(
+                            new CopyFile(new File(overlay.source, owner.name), target, linkMode)));
+                } else {
+                    ZipFile zipFile = zipFiles.get(owner.index);
+                    if (zipFile == null) {
+                        zipFile = new ZipFile(overlay.source);
+                        zipFiles.put(owner.index, zipFile);
+                    }
+                    writes.add(executor.submit(new ExtractEntry(zipFile, owner.name, target)));
+                }
+            }
+            for (Future<?> write : writes) {
+                get(write);
+            }
+            for (Map.Entry<File, Owner> entry : owners.entrySet()) {
+                Owner owner = entry.getValue();
+                current.getRecords().get(owner.index).getTargets().put(owner.name, stamp(entry.getKey()));
+            }
+            int removed = 0;
+            for (Map.Entry<File, Owner> entry : previousOwners.entrySet()) {
+                File target = entry.getKey();
+                // leave files that something else has written since the last unpack
+                if (!owners.containsKey(target) && target.isFile()
+                        && stamp(target).equals(entry.getValue().stamp) && target.delete()) {
+                    removed++;
+                }
+            }
+            if (manifestFile != null) {
+                current.save(manifestFile);
+            }
+            log.info("Unpacked " + writes.size() + " files from " + overlays.size() + " overlays ("
+                    + unchanged + " unchanged, " + removed + " removed)");
+        } finally {
+            executor.shutdownNow();
+            for (ZipFile zipFile : zipFiles.values()) {
+                try {
+                    zipFile.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the records into an index of target file to the overlay providing it, later records win.
+     *
+     * @param manifest the records.
+     * @return the index.
+     */
+    private static Map<File, Owner> index(UnpackManifest manifest) {
+        Map<File, Owner> owners = new LinkedHashMap<File, Owner>();
+        List<UnpackManifest.Record> records = manifest.getRecords();
+        for (int index = 0; index < records.size(); index++) {
+            UnpackManifest.Record record = records.get(index);
+            File location = record.getLocation();
+            for (Map.Entry<String, String> entry : record.getEntries().entrySet()) {
+                owners.put(new File(location, entry.getKey()), new Owner(index, record.getKey(), entry.getKey(),
+                        entry.getValue(), record.getTargets().get(entry.getKey())));
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Returns the length and last modified time of a target file, which any change to the file is expected to alter.
+     *
+     * @param target the target file.
+     * @return the stamp of the target file.
+     */
+    private static String stamp(File target) {
+        return target.length() + ":" + target.lastModified();
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while unpacking");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+        }
+    }
+
+    private static void checkName(File location, String name) throws IOException {
+        for (String segment : StringUtils.split(name, "/")) {
+            if ("..".equals(segment)) {
+                throw new IOException("Refusing to unpack entry " + name + " outside of " + location);
+            }
+        }
+    }
+
+    private static String[] normalizePatterns(String[] patterns) {
+        if (patterns == null || patterns.length == 0) {
+            return null;
+        }
+        String[] result = new String[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            String pattern = patterns[i].trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (pattern.endsWith(File.separator)) {
+                pattern += "**";
+            }
+            result[i] = pattern;
+        }
+        return result;
+    }
+
+    private static void write(InputStream content, File target, long time) throws IOException {
+        try {
+            target.getParentFile().mkdirs();
+            // never write through a link created by a previous unpack
+            target.delete();
+            OutputStream outputStream = new FileOutputStream(target);
+            try {
+                IOUtil.copy(content, outputStream);
+            } finally {
+                IOUtil.close(outputStream);
+            }
+            if (time > 0) {
+                target.setLastModified(time);
+            }
+        } finally {
+            IOUtil.close(content);
+        }
+    }
+
+    private static class Overlay {
+        private final File source;
+        private final File location;
+        private final String includes;
+        private final String excludes;
+        private final String[] includePatterns;
+        private final String[] excludePatterns;
+
+        private Overlay(File source, File location, String[] includes, String[] excludes) {
+            this.source = source;
+            this.location = location;
+            this.includes = includes == null ? null : StringUtils.join(includes, ",");
+            this.excludes = excludes == null ? null : StringUtils.join(excludes, ",");
+            this.includePatterns = normalizePatterns(includes);
+            this.excludePatterns = normalizePatterns(excludes);
+        }
+
+        private boolean isSelected(String name) {
+            String path = name.replace('/', File.separatorChar);
+            if (includePatterns != null) {
+                boolean included = false;
+                for (String include : includePatterns) {
+                    if (SelectorUtils.matchPath(include, path, true)) {
+                        included = true;
+                        break;
+                    }
+                }
+                if (!included) {
+                    return false;
+                }
+            }
+            if (excludePatterns != null) {
+                for (String exclude : excludePatterns) {
+                    if (SelectorUtils.matchPath(exclude, path, true)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The overlay providing a target file.
+     */
+    private static class Owner {
+        private final int index;
+        private final String key;
+        private final String name;
+        private final String signature;
+        private final String stamp;
+
+        private Owner(int index, String key, String name, String signature, String stamp) {
+            this.index = index;
+            this.key = key;
+            this.name = name;
+            this.signature = signature;
+            this.stamp = stamp;
+        }
+
+        private boolean isSameAs(Owner other) {
+            return other != null && key.equals(other.key) && name.equals(other.name)
+                    && StringUtils.equals(signature, other.signature);
+        }
+    }
+
+    /**
+     * Lists the entries of an overlay, reusing the previous listing of zip files that have not changed.
+     */
+    private static class Scan implements Callable<UnpackManifest.Record> {
+        private final Overlay overlay;
+        private final UnpackManifest previous;
+
+        private Scan(Overlay overlay, UnpackManifest previous) {
+            this.overlay = overlay;
+            this.previous = previous;
+        }
+
+        public UnpackManifest.Record call() throws IOException {
+            if (overlay.source.isDirectory()) {
+                return scanDirectory();
+            }
+            if (!overlay.source.isFile()) {
+                throw new FileNotFoundException(overlay.source.getPath());
+            }
+            UnpackManifest.Record record = new UnpackManifest.Record(overlay.source, overlay.location,
+                    overlay.source.length() + ":" + overlay.source.lastModified(), overlay.includes,
+                    overlay.excludes);
+            UnpackManifest.Record last = previous == null ? null : previous.find(record.getKey());
+            if (record.isSameAs(last)) {
+                return last.copy();
+            }
+            ZipFile zipFile = new ZipFile(overlay.source);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = StringUtils.replace(entry.getName(), "\\", "/");
+                    if (ZipIndex.INDEX_ENTRY.equals(name) || !overlay.isSelected(name)) {
+                        continue;
+                    }
+                    checkName(overlay.location, name);
+                    if (entry.isDirectory()) {
+                        record.getDirectories().add(name);
+                    } else {
+                        record.getEntries().put(name, Long.toHexString(entry.getCrc()) + ":" + entry.getSize());
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+            return record;
+        }
+
+        private UnpackManifest.Record scanDirectory() {
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir(overlay.source);
+            scanner.scan();
+            Map<String, String> entries = new LinkedHashMap<String, String>();
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("JVM is required to support SHA-1", e);
+            }
+            for (String name : scanner.getIncludedFiles()) {
+                File file = new File(overlay.source, name);
+                String signature = file.length() + ":" + file.lastModified();
+                name = name.replace(File.separatorChar, '/');
+                entries.put(name, signature);
+                digest.update((name + "=" + signature + "\n").getBytes());
+            }
+            StringBuilder fingerprint = new StringBuilder();
+            for (byte b : digest.digest()) {
+                fingerprint.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            UnpackManifest.Record record = new UnpackManifest.Record(overlay.source, overlay.location,
+                    fingerprint.toString(), overlay.includes, overlay.excludes);
+            for (String name : scanner.getIncludedDirectories()) {
+                if (name.length() > 0) {
+                    record.getDirectories().add(name.replace(File.separatorChar, '/'));
+                }
+            }
+            record.getEntries().putAll(entries);
+            return record;
+        }
+    }
+
+    private static class ExtractEntry implements Callable<Void> {
+        private final ZipFile zipFile;
+        private final String name;
+        private final File target;
+
+        private ExtractEntry(ZipFile zipFile, String name, File target) {
+            this.zipFile = zipFile;
+            this.name = name;
+            this.target = target;
+        }
+
+        public Void call() throws IOException {
+            ZipEntry entry = zipFile.getEntry(name);
+            if (entry == null) {
+                // the name was normalized when scanning
+                entry = zipFile.getEntry(name.replace('/', '\\'));
+            }
+            if (entry == null) {
+                throw new FileNotFoundException(name + " in " + zipFile.getName());
+            }
+            write(zipFile.getInputStream(entry), target, entry.getTime());
+            return null;
+        }
+    }
+
+    private static class CopyFile implements Callable<Void> {
+        private final File source;
+        private final File target;
+        private final LinkMode linkMode;
+
+        private CopyFile(File source, File target, LinkMode linkMode) {
+            this.source = source;
+            this.target = target;
+            this.linkMode = linkMode;
+        }
+
+        public Void call() throws IOException {
+            if (!linkMode.link(source, target)) {
+                write(new FileInputStream(source), target, source.lastModified());
+            }
+            return null;
+        }
+    }
+}
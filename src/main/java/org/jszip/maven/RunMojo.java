@@ -25,17 +25,10 @@ import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
 import org.apache.maven.execution.MavenSession;
-import org.apache.maven.model.Plugin;
-import org.apache.maven.model.PluginExecution;
 import org.apache.maven.model.building.ModelBuildingRequest;
 import org.apache.maven.plugin.MavenPluginManager;
-import org.apache.maven.plugin.Mojo;
-import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.plugin.PluginConfigurationException;
-import org.apache.maven.plugin.PluginContainerException;
-import org.apache.maven.plugin.descriptor.MojoDescriptor;
 import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -63,7 +56,6 @@ import org.apache.maven.shared.invoker.InvocationRequest;
 import org.apache.maven.shared.invoker.Invoker;
 import org.apache.maven.shared.invoker.InvokerLogger;
 import org.apache.maven.shared.invoker.MavenInvocationException;
-import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.dag.CycleDetectedException;
@@ -79,13 +71,17 @@ import org.eclipse.jetty.util.resource.ResourceCollection;
 import org.eclipse.jetty.webapp.WebAppClassLoader;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.jszip.css.CssEngine;
+import org.jszip.css.MinifyingCssEngine;
 import org.jszip.jetty.CssEngineResource;
+import org.jszip.jetty.IndexedDirectoryResource;
 import org.jszip.jetty.JettyWebAppContext;
+import org.jszip.jetty.ResourceCache;
 import org.jszip.jetty.SystemProperties;
 import org.jszip.jetty.SystemProperty;
 import org.jszip.jetty.VirtualDirectoryResource;
 import org.jszip.less.LessEngine;
 import org.jszip.pseudo.io.PseudoDirectoryScanner;
+import org.jszip.pseudo.io.PseudoDirectorySnapshot;
 import org.jszip.pseudo.io.PseudoFile;
 import org.jszip.pseudo.io.PseudoFileOutputStream;
 import org.jszip.pseudo.io.PseudoFileSystem;
@@ -98,10 +94,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.Stack;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -179,6 +180,35 @@ public class RunMojo extends AbstractJSZipMojo {
     @Parameter(property = "jszip.run.module")
     private String runModule;
 
+    /**
+     * How the webapp classloader is rebuilt when the classpath changes. With {@code full} a new classloader is created
+     * with every classpath element. With {@code classes} the jar dependencies are held in a parent classloader that is
+     * reused for as long as the jars are unchanged, and only a child classloader for the directory elements (i.e. the
+     * {@code target/classes} directories of the reactor modules) is recreated. Any other value fails the build.
+     */
+    @Parameter(property = "jszip.run.reload", defaultValue = "full")
+    private String reload;
+
+    /**
+     * The maximum number of bytes of static resource content to hold in memory. The cache is cleared whenever a
+     * change is detected. A value of {@code 0} disables the cache.
+     */
+    @Parameter(property = "jszip.run.resourceCacheSize", defaultValue = "0")
+    private long resourceCacheSize;
+
+    /**
+     * The maximum size of an individual static resource that will be held in the resource cache.
+     */
+    @Parameter(property = "jszip.run.resourceCacheMaxFileSize", defaultValue = "1048576")
+    private long resourceCacheMaxFileSize;
+
+    /**
+     * Serve gzip compressed variants of text resources (such as compiled CSS and JavaScript) to clients that
+     * accept them. Each variant is compressed once and only recompressed when the content it serves changes.
+     */
+    @Parameter(property = "jszip.run.precompress", defaultValue = "false")
+    private boolean precompress;
+
     /**
      * List of the packaging types will be considered for executing this goal. Normally you do not
      * need to configure this parameter unless you have a custom war packaging type. Defaults to <code>war</code>
@@ -250,6 +280,13 @@ public class RunMojo extends AbstractJSZipMojo {
     @Parameter(property = "jszip.less.compress", defaultValue = "true")
     private boolean lessCompress;
 
+    /**
+     * Minify the compiled CSS with the built-in Java minifier. For LESS this replaces {@code lessCompress}, which is
+     * then skipped.
+     */
+    @Parameter(property = "jszip.css.minify", defaultValue = "false")
+    private boolean cssMinify;
+
     /**
      * Indicates whether the build will continue even if there are compilation errors.
      */
@@ -262,6 +299,30 @@ public class RunMojo extends AbstractJSZipMojo {
     @Parameter(property = "jszip.less.showErrorExtracts", defaultValue = "false")
     private boolean showErrorExtracts;
 
+    /**
+     * The Rhino optimization level used to compile the LESS scripts, from {@code -1} (interpreted) to {@code 9}.
+     * Scripts that cannot be compiled at this level are interpreted.
+     */
+    @Parameter(property = "jszip.rhino.optimizationLevel", defaultValue = "9")
+    private int rhinoOptimizationLevel;
+
+    /**
+     * The directory where the LESS scripts compiled to Java classes are kept between builds, keyed by the hash of the
+     * script and the compiler settings, so that later builds load the classes instead of compiling the scripts again.
+     * Set it to a directory outside the build directory, e.g. {@code ${settings.localRepository}/.cache/jszip/rhino},
+     * to share the classes between projects and keep them across {@code mvn clean}. The classes found there are
+     * loaded into the build, so only use a directory that nothing but trusted builds can write to.
+     */
+    @Parameter(property = "jszip.rhino.classCache", defaultValue = "${project.build.directory}/jszip-rhino-cache")
+    private File rhinoClassCache;
+
+    /**
+     * The JavaScript runtime to run the LESS compiler on, {@code rhino} or the name of another runtime added to the
+     * plugin's dependencies.
+     */
+    @Parameter(property = "jszip.javascript.engine", defaultValue = "rhino")
+    private String javascriptEngine;
+
     /**
      * A list of &lt;include&gt; elements specifying the less files (by pattern) that should be included in
      * processing.
@@ -346,6 +407,17 @@ public class RunMojo extends AbstractJSZipMojo {
 
     private final String scope = "test";
     private final long classpathCheckInterval = TimeUnit.SECONDS.toMillis(10);
+    private final long stylesheetScanInterval = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * The jar dependencies (and their timestamps) held by {@link #dependencyClassLoader}.
+     */
+    private List<String> dependencyClassPath;
+
+    /**
+     * The parent classloader holding the jar dependencies when {@link #reload} is {@code classes}.
+     */
+    private ClassLoader dependencyClassLoader;
 
     public void execute()
             throws MojoExecutionException, MojoFailureException {
@@ -367,6 +439,9 @@ public class RunMojo extends AbstractJSZipMojo {
                     project.getArtifactId()) + " as requested runModule is " + runModule);
             return;
         }
+        if (!"full".equals(reload) && !"classes".equals(reload)) {
+            throw new MojoExecutionException("Unknown reload '" + reload + "', expected one of [full, classes]");
+        }
         getLog().info("Starting JSZip run: module " + ArtifactUtils.versionlessKey(project.getGroupId(),
                 project.getArtifactId()));
         MavenProject project = this.project;
@@ -394,12 +469,15 @@ public class RunMojo extends AbstractJSZipMojo {
             throw new MojoExecutionException(e.getMessage(), e);
         }
         List<MavenProject> reactorProjects = this.reactorProjects;
-        WebAppContext webAppContext;
+        ResourceCache resourceCache =
+                resourceCacheSize > 0 ? new ResourceCache(resourceCacheSize, resourceCacheMaxFileSize) : null;
+        JettyWebAppContext webAppContext;
         Resource webXml;
         List<Resource> resources;
+        CssEngineIndex cssEngineIndex;
         try {
             resources = new ArrayList<Resource>();
-            addCssEngineResources(project, reactorProjects, mappings, resources);
+            cssEngineIndex = addCssEngineResources(project, reactorProjects, mappings, resources);
             for (Artifact a : getOverlayArtifacts(project, scope)) {
                 addOverlayResources(reactorProjects, resources, a);
             }
@@ -421,12 +499,10 @@ public class RunMojo extends AbstractJSZipMojo {
             webAppContext = new JettyWebAppContext();
             webAppContext.setWar(warSourceDirectory.getAbsolutePath());
             webAppContext.setBaseResource(resourceCollection);
+            webAppContext.setResourceCache(resourceCache);
+            webAppContext.setPrecompress(precompress);
 
-            WebAppClassLoader classLoader = new WebAppClassLoader(webAppContext);
-            for (String s : getClasspathElements(project, scope)) {
-                classLoader.addClassPath(s);
-            }
-            webAppContext.setClassLoader(classLoader);
+            webAppContext.setClassLoader(createClassLoader(webAppContext, project));
 
             contexts.setHandlers(new Handler[]{webAppContext});
             contexts.start();
@@ -452,6 +528,7 @@ public class RunMojo extends AbstractJSZipMojo {
 
             getLog().info("Context started. Will restart if changes to poms detected.");
             long nextClasspathCheck = System.currentTimeMillis() + classpathCheckInterval;
+            long nextStylesheetScan = System.currentTimeMillis() + stylesheetScanInterval;
             while (true) {
                 long nextCheck = System.currentTimeMillis() + 500;
                 long pomsLastModified = getPomsLastModified();
@@ -469,10 +546,27 @@ public class RunMojo extends AbstractJSZipMojo {
                 if (!classPathChanged && !overlaysChanged && !pomsChanged) {
 
                     try {
-                        lastResourceChange = processResourceSourceChanges(reactorProjects, project, lastResourceChange);
+                        long resourceChange =
+                                processResourceSourceChanges(reactorProjects, project, lastResourceChange);
+                        if (resourceChange != lastResourceChange) {
+                            if (resourceCache != null) {
+                                resourceCache.clear();
+                            }
+                            webAppContext.refreshGzipResources();
+                        }
+                        lastResourceChange = resourceChange;
                     } catch (ArtifactFilterException e) {
                         getLog().debug("Couldn't process resource changes", e);
                     }
+                    if (nextStylesheetScan < System.currentTimeMillis()) {
+                        if (cssEngineIndex.refresh()) {
+                            if (resourceCache != null) {
+                                resourceCache.clear();
+                            }
+                            webAppContext.refreshGzipResources();
+                        }
+                        nextStylesheetScan = System.currentTimeMillis() + stylesheetScanInterval;
+                    }
                     try {
                         Thread.sleep(Math.max(100L, nextCheck - System.currentTimeMillis()));
                     } catch (InterruptedException e) {
@@ -547,7 +641,7 @@ public class RunMojo extends AbstractJSZipMojo {
                     try {
                         List<Resource> newResources = new ArrayList<Resource>();
                         // TODO newMappings
-                        addCssEngineResources(newProject, newReactorProjects, mappings, resources);
+                        addCssEngineResources(newProject, newReactorProjects, mappings, resources).close();
                         for (Artifact a : getOverlayArtifacts(project, scope)) {
                             addOverlayResources(newReactorProjects, newResources, a);
                         }
@@ -570,10 +664,7 @@ public class RunMojo extends AbstractJSZipMojo {
                     } catch (ArtifactFilterException e) {
                         getLog().info("Re-parse aborted due to overlay evaluation problems", e);
                         continue;
-                    } catch (PluginConfigurationException e) {
-                        getLog().info("Re-parse aborted due to overlay evaluation problems", e);
-                        continue;
-                    } catch (PluginContainerException e) {
+                    } catch (MojoExecutionException e) {
                         getLog().info("Re-parse aborted due to overlay evaluation problems", e);
                         continue;
                     } catch (IOException e) {
@@ -598,11 +689,7 @@ public class RunMojo extends AbstractJSZipMojo {
                 if (classPathChanged) {
                     getLog().info("Updating classpath...");
                     try {
-                        WebAppClassLoader classLoader = new WebAppClassLoader(webAppContext);
-                        for (String s : getClasspathElements(project, scope)) {
-                            classLoader.addClassPath(s);
-                        }
-                        webAppContext.setClassLoader(classLoader);
+                        webAppContext.setClassLoader(createClassLoader(webAppContext, project));
                     } catch (Exception e) {
                         throw new MojoExecutionException(e.getMessage(), e);
                     }
@@ -612,7 +699,8 @@ public class RunMojo extends AbstractJSZipMojo {
                     getLog().info("Updating overlays...");
                     try {
                         resources = new ArrayList<Resource>();
-                        addCssEngineResources(project, reactorProjects, mappings, resources);
+                        cssEngineIndex.close();
+                        cssEngineIndex = addCssEngineResources(project, reactorProjects, mappings, resources);
                         for (Artifact a : getOverlayArtifacts(project, scope)) {
                             addOverlayResources(reactorProjects, resources, a);
                         }
@@ -632,6 +720,9 @@ public class RunMojo extends AbstractJSZipMojo {
                         throw new MojoExecutionException(e.getMessage(), e);
                     }
                 }
+                if (resourceCache != null) {
+                    resourceCache.clear();
+                }
                 try {
                     webAppContext.start();
                 } catch (Exception e) {
@@ -642,6 +733,7 @@ public class RunMojo extends AbstractJSZipMojo {
             }
 
         } finally {
+            cssEngineIndex.close();
             try {
                 server.stop();
             } catch (Exception e) {
@@ -650,56 +742,74 @@ public class RunMojo extends AbstractJSZipMojo {
         }
     }
 
+    private WebAppClassLoader createClassLoader(WebAppContext webAppContext, MavenProject project)
+            throws DependencyResolutionRequiredException, IOException {
+        List<String> classpathElements = getClasspathElements(project, scope);
+        if (!"classes".equals(reload)) {
+            WebAppClassLoader classLoader = new WebAppClassLoader(webAppContext);
+            for (String s : classpathElements) {
+                classLoader.addClassPath(s);
+            }
+            return classLoader;
+        }
+        List<String> directories = new ArrayList<String>();
+        List<String> jars = new ArrayList<String>();
+        List<String> jarsWithTimestamps = new ArrayList<String>();
+        for (String s : classpathElements) {
+            File element = new File(s);
+            if (element.isDirectory()) {
+                directories.add(s);
+            } else {
+                jars.add(s);
+                jarsWithTimestamps.add(s + "@" + element.lastModified());
+            }
+        }
+        if (dependencyClassLoader == null || !jarsWithTimestamps.equals(dependencyClassPath)) {
+            getLog().debug("Creating dependency classloader with " + jars.size() + " jars");
+            ClassLoader parent = Thread.currentThread().getContextClassLoader();
+            if (parent == null) {
+                parent = WebAppClassLoader.class.getClassLoader();
+            }
+            // use a webapp classloader for the jars too so that they retain the webapp class loading semantics
+            WebAppClassLoader classLoader = new WebAppClassLoader(parent, webAppContext);
+            for (String s : jars) {
+                classLoader.addClassPath(s);
+            }
+            dependencyClassLoader = classLoader;
+            dependencyClassPath = jarsWithTimestamps;
+        } else {
+            getLog().debug("Reusing dependency classloader, only reloading " + directories.size() + " directories");
+        }
+        WebAppClassLoader classLoader = new WebAppClassLoader(dependencyClassLoader, webAppContext);
+        for (String s : directories) {
+            classLoader.addClassPath(s);
+        }
+        return classLoader;
+    }
+
     private void addOverlayResources(List<MavenProject> reactorProjects, List<Resource> _resources, Artifact a)
-            throws PluginConfigurationException, PluginContainerException, IOException, MojoExecutionException {
+            throws IOException, MojoExecutionException {
         List<Resource> resources = new ArrayList<Resource>();
         MavenProject fromReactor = findProject(reactorProjects, a);
         if (fromReactor != null) {
-            MavenSession session = this.session.clone();
-            session.setCurrentProject(fromReactor);
-            Plugin plugin = findThisPluginInProject(fromReactor);
-
-            // we cheat here and use our version of the plugin... but this is less of a cheat than the only
-            // other way which is via reflection.
-            MojoDescriptor jszipDescriptor = findMojoDescriptor(pluginDescriptor, JSZipMojo.class);
-
-            for (PluginExecution pluginExecution : plugin.getExecutions()) {
-                if (!pluginExecution.getGoals().contains(jszipDescriptor.getGoal())) {
-                    continue;
-                }
-                MojoExecution mojoExecution =
-                        createMojoExecution(plugin, pluginExecution, jszipDescriptor);
-                JSZipMojo mojo = (JSZipMojo) mavenPluginManager
-                        .getConfiguredMojo(Mojo.class, session, mojoExecution);
-                try {
-                    File contentDirectory = mojo.getContentDirectory();
-                    if (contentDirectory.isDirectory()) {
-                        getLog().debug(
-                                "Adding resource directory " + contentDirectory);
-                        resources.add(Resource.newResource(contentDirectory));
-                    }
-                    // TODO filtering support
-                    //
-                    // The good news:
-                    //  * resources:resources gets the list of resources from /project/build/resources *only*
-                    // The bad news:
-                    //  * looks like maven-invoker is the only way to safely invoke it again
-                    //
-                    // probable solution
-                    //
-                    // 1. get the list of all resource directories, add on the scan for changes
-                    // 2. if a change to a non-filtered file, just copy it over
-                    // 3. if a change to a filtered file or a change to effective pom, use maven-invoker to run the
-                    //    lifecycle up to 'compile' or 'process-resources' <-- preferred
-                    //
-                    File resourcesDirectory = mojo.getResourcesDirectory();
-                    if (resourcesDirectory.isDirectory()) {
-                        getLog().debug(
-                                "Adding resource directory " + resourcesDirectory);
-                        resources.add(Resource.newResource(resourcesDirectory));
-                    }
-                } finally {
-                    mavenPluginManager.releaseMojo(mojo, mojoExecution);
+            // TODO filtering support
+            //
+            // The good news:
+            //  * resources:resources gets the list of resources from /project/build/resources *only*
+            // The bad news:
+            //  * looks like maven-invoker is the only way to safely invoke it again
+            //
+            // probable solution
+            //
+            // 1. get the list of all resource directories, add on the scan for changes
+            // 2. if a change to a non-filtered file, just copy it over
+            // 3. if a change to a filtered file or a change to effective pom, use maven-invoker to run the
+            //    lifecycle up to 'compile' or 'process-resources' <-- preferred
+            //
+            for (File directory : getReactorDirectories(session, mavenPluginManager, pluginDescriptor, fromReactor)) {
+                if (directory.isDirectory()) {
+                    getLog().debug("Adding resource directory " + directory);
+                    resources.add(Resource.newResource(directory));
                 }
             }
         } else {
@@ -725,7 +835,7 @@ public class RunMojo extends AbstractJSZipMojo {
         }
     }
 
-    private void addCssEngineResources(MavenProject project, List<MavenProject> reactorProjects, Mapping[] mappings, List<Resource> _resources)
+    private CssEngineIndex addCssEngineResources(MavenProject project, List<MavenProject> reactorProjects, Mapping[] mappings, List<Resource> _resources)
             throws MojoExecutionException, IOException {
         List<PseudoFileSystem.Layer> layers = new ArrayList<PseudoFileSystem.Layer>();
         layers.add(new PseudoFileSystem.FileLayer("/virtual", warSourceDirectory));
@@ -754,41 +864,12 @@ public class RunMojo extends AbstractJSZipMojo {
             if (file.isDirectory()) {
                 MavenProject fromReactor = findProject(reactorProjects, artifact);
                 if (fromReactor != null) {
-                    MavenSession session = this.session.clone();
-                    session.setCurrentProject(fromReactor);
-                    Plugin plugin = findThisPluginInProject(fromReactor);
-                    try {
-                        // we cheat here and use our version of the plugin... but this is less of a cheat than the only
-                        // other way which is via reflection.
-                        MojoDescriptor jszipDescriptor = findMojoDescriptor(this.pluginDescriptor, JSZipMojo.class);
-
-                        for (PluginExecution pluginExecution : plugin.getExecutions()) {
-                            if (!pluginExecution.getGoals().contains(jszipDescriptor.getGoal())) {
-                                continue;
-                            }
-                            MojoExecution mojoExecution =
-                                    createMojoExecution(plugin, pluginExecution, jszipDescriptor);
-                            JSZipMojo mojo = (JSZipMojo) mavenPluginManager
-                                    .getConfiguredMojo(org.apache.maven.plugin.Mojo.class, session, mojoExecution);
-                            try {
-                                File contentDirectory = mojo.getContentDirectory();
-                                if (contentDirectory.isDirectory()) {
-                                    getLog().debug("Merging directory " + contentDirectory + " into " + path);
-                                    layers.add(new PseudoFileSystem.FileLayer(path, contentDirectory));
-                                }
-                                File resourcesDirectory = mojo.getResourcesDirectory();
-                                if (resourcesDirectory.isDirectory()) {
-                                    getLog().debug("Merging directory " + contentDirectory + " into " + path);
-                                    layers.add(new PseudoFileSystem.FileLayer(path, resourcesDirectory));
-                                }
-                            } finally {
-                                mavenPluginManager.releaseMojo(mojo, mojoExecution);
-                            }
+                    for (File directory : getReactorDirectories(session, mavenPluginManager, pluginDescriptor,
+                            fromReactor)) {
+                        if (directory.isDirectory()) {
+                            getLog().debug("Merging directory " + directory + " into " + path);
+                            layers.add(new PseudoFileSystem.FileLayer(path, directory));
                         }
-                    } catch (PluginConfigurationException e) {
-                        throw new MojoExecutionException(e.getMessage(), e);
-                    } catch (PluginContainerException e) {
-                        throw new MojoExecutionException(e.getMessage(), e);
                     }
                 } else {
                     throw new MojoExecutionException("Cannot find jzsip artifact: " + artifact.getId());
@@ -805,7 +886,15 @@ public class RunMojo extends AbstractJSZipMojo {
 
         final PseudoFileSystem fs = new PseudoFileSystem(layers);
 
-        CssEngine engine = new LessEngine(fs, encoding == null ? "utf-8" : encoding, getLog(), lessCompress, customLessScript, showErrorExtracts);
+
+        // a single index of all the compiled stylesheets so that requests are resolved with one lookup
+        CssEngineIndex index = new CssEngineIndex(fs);
+
+        CssEngine engine = new LessEngine(fs, encoding == null ? "utf-8" : encoding, getLog(), lessCompress && !cssMinify, customLessScript, showErrorExtracts,
+                createJavaScriptRuntime(javascriptEngine, rhinoOptimizationLevel, rhinoClassCache));
+        if (cssMinify) {
+            engine = new MinifyingCssEngine(engine);
+        }
 
         // look for files to compile
 
@@ -827,20 +916,18 @@ public class RunMojo extends AbstractJSZipMojo {
             scanner.setExcludes(new String[0]);
         }
 
-        scanner.scan();
+        index.add(engine, new PseudoDirectorySnapshot(scanner));
 
-        for (String fileName : new ArrayList<String>(Arrays.asList(scanner.getIncludedFiles()))) {
-            final CssEngineResource child = new CssEngineResource(fs, engine, "/virtual/" + fileName,
-                    new File(webappDirectory, engine.mapName(fileName)));
-            final String path = FileUtils.dirname(fileName);
-            if (StringUtils.isBlank(path)) {
-                _resources.add(new VirtualDirectoryResource(new VirtualDirectoryResource(child, child.getName()), ""));
-            } else {
-                _resources.add(new VirtualDirectoryResource(new VirtualDirectoryResource(child, child.getName()), path));
-            }
+        engine = new SassEngine(fs, encoding == null ? "utf-8" : encoding);
+        if (cssMinify) {
+            engine = new MinifyingCssEngine(engine);
         }
 
-        engine = new SassEngine(fs, encoding == null ? "utf-8" : encoding);
+        scanner = new PseudoDirectoryScanner();
+
+        scanner.setFileSystem(fs);
+
+        scanner.setBasedir(fs.getPseudoFile("/virtual"));
 
         if (sassIncludes != null && !sassIncludes.isEmpty()) {
             scanner.setIncludes(processIncludesExcludes(sassIncludes));
@@ -854,19 +941,104 @@ public class RunMojo extends AbstractJSZipMojo {
             scanner.setExcludes(new String[]{"**/_*.sass","**/_*.scss"});
         }
 
-        scanner.scan();
+        index.add(engine, new PseudoDirectorySnapshot(scanner));
 
-        for (String fileName : new ArrayList<String>(Arrays.asList(scanner.getIncludedFiles()))) {
-            final CssEngineResource child = new CssEngineResource(fs, engine, "/virtual/" + fileName,
-                    new File(webappDirectory, engine.mapName(fileName)));
-            final String path = FileUtils.dirname(fileName);
-            if (StringUtils.isBlank(path)) {
-                _resources.add(new VirtualDirectoryResource(new VirtualDirectoryResource(child, child.getName()), ""));
-            } else {
-                _resources.add(new VirtualDirectoryResource(new VirtualDirectoryResource(child, child.getName()), path));
-            }
+        index.refresh();
+
+        _resources.add(index.getResource());
+        return index;
+    }
+
+    /**
+     * The compiled stylesheets served by {@code jszip:run}, kept up to date as source stylesheets are added and
+     * removed by rescanning only the directories that have changed.
+     */
+    private final class CssEngineIndex {
+        private final PseudoFileSystem fs;
+
+        private final IndexedDirectoryResource resource = new IndexedDirectoryResource();
+
+        private final List<CssEngine> engines = new ArrayList<CssEngine>();
+
+        private final List<PseudoDirectorySnapshot> snapshots = new ArrayList<PseudoDirectorySnapshot>();
+
+        /**
+         * For each engine, the source stylesheets keyed by the name of the stylesheet they compile to.
+         */
+        private final List<Map<String, SortedSet<String>>> sources = new ArrayList<Map<String, SortedSet<String>>>();
+
+        private CssEngineIndex(PseudoFileSystem fs) {
+            this.fs = fs;
+        }
+
+        private void add(CssEngine engine, PseudoDirectorySnapshot snapshot) {
+            engines.add(engine);
+            snapshots.add(snapshot);
+            sources.add(new HashMap<String, SortedSet<String>>());
+        }
+
+        private IndexedDirectoryResource getResource() {
+            return resource;
         }
 
+        /**
+         * Closes the zip files that the stylesheets are read from, they are reopened when next needed.
+         */
+        private void close() {
+            fs.close();
+        }
+
+        /**
+         * Picks up the stylesheets added and removed since the last refresh.
+         *
+         * @return {@code true} if any stylesheets were added or removed.
+         */
+        private boolean refresh() {
+            Set<String> affected = new LinkedHashSet<String>();
+            for (int i = 0; i < engines.size(); i++) {
+                CssEngine engine = engines.get(i);
+                Map<String, SortedSet<String>> sources = this.sources.get(i);
+                PseudoDirectorySnapshot.Changes changes = snapshots.get(i).refresh();
+                for (String fileName : changes.getRemoved()) {
+                    getLog().debug("Removing stylesheet " + fileName);
+                    String name = engine.mapName(fileName);
+                    SortedSet<String> fileNames = sources.get(name);
+                    if (fileNames != null && fileNames.remove(fileName) && fileNames.isEmpty()) {
+                        sources.remove(name);
+                    }
+                    affected.add(name);
+                }
+                for (String fileName : changes.getAdded()) {
+                    getLog().debug("Adding stylesheet " + fileName);
+                    String name = engine.mapName(fileName);
+                    SortedSet<String> fileNames = sources.get(name);
+                    if (fileNames == null) {
+                        fileNames = new TreeSet<String>();
+                        sources.put(name, fileNames);
+                    }
+                    fileNames.add(fileName);
+                    affected.add(name);
+                }
+            }
+            for (String name : affected) {
+                CssEngineResource winner = null;
+                // the last stylesheet of the last engine wins, as with the reversed resource collection that this
+                // index replaced, so foo.scss is served in preference to foo.less
+                for (int i = engines.size() - 1; i >= 0 && winner == null; i--) {
+                    SortedSet<String> fileNames = sources.get(i).get(name);
+                    if (fileNames != null) {
+                        winner = new CssEngineResource(fs, engines.get(i), "/virtual/" + fileNames.last(),
+                                new File(webappDirectory, name));
+                    }
+                }
+                if (winner == null) {
+                    resource.remove(name);
+                } else {
+                    resource.put(name, winner);
+                }
+            }
+            return !affected.isEmpty();
+        }
     }
 
     private void injectMissingArtifacts(MavenProject destination, MavenProject source) {
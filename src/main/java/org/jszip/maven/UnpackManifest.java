@@ -0,0 +1,234 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.maven;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records what was unpacked by the previous build so that the next build only needs to apply the differences.
+ */
+class UnpackManifest {
+
+    /**
+     * The version of the manifest format, manifests with any other version are ignored.
+     */
+    private static final int VERSION = 1;
+
+    private final List<Record> records = new ArrayList<Record>();
+
+    /**
+     * Reads a manifest.
+     *
+     * @param file the manifest file.
+     * @return the manifest, which will be empty if the file does not exist or is from a different version.
+     * @throws IOException if the manifest could not be read.
+     */
+    @SuppressWarnings("unchecked")
+    static UnpackManifest load(File file) throws IOException {
+        UnpackManifest manifest = new UnpackManifest();
+        if (!file.isFile()) {
+            return manifest;
+        }
+        Map<String, Object> map = new ObjectMapper().readValue(file, Map.class);
+        if (!(map.get("version") instanceof Number) || ((Number) map.get("version")).intValue() != VERSION) {
+            return manifest;
+        }
+        List<Map<String, Object>> records = (List<Map<String, Object>>) map.get("overlays");
+        if (records != null) {
+            for (Map<String, Object> record : records) {
+                manifest.records.add(Record.fromMap(record));
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest.
+     *
+     * @param file the manifest file.
+     * @throws IOException if the manifest could not be written.
+     */
+    void save(File file) throws IOException {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("version", VERSION);
+        List<Map<String, Object>> records = new ArrayList<Map<String, Object>>(this.records.size());
+        for (Record record : this.records) {
+            records.add(record.toMap());
+        }
+        map.put("overlays", records);
+        file.getParentFile().mkdirs();
+        new ObjectMapper().writeValue(file, map);
+    }
+
+    List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    void add(Record record) {
+        records.add(record);
+    }
+
+    /**
+     * Returns the record of an overlay.
+     *
+     * @param key the {@link Record#getKey()} of the overlay.
+     * @return the record or {@code null}.
+     */
+    Record find(String key) {
+        for (Record record : records) {
+            if (key.equals(record.getKey())) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * What was unpacked from a single overlay.
+     */
+    static class Record {
+        private final String source;
+        private final String location;
+        private final String fingerprint;
+        private final String includes;
+        private final String excludes;
+        private final Map<String, String> entries = new LinkedHashMap<String, String>();
+        private final Map<String, String> targets = new LinkedHashMap<String, String>();
+        private final List<String> directories = new ArrayList<String>();
+
+        /**
+         * Creates a record.
+         *
+         * @param source      the zip file or directory being unpacked.
+         * @param location    the directory being unpacked into.
+         * @param fingerprint the fingerprint of the source.
+         * @param includes    the include patterns.
+         * @param excludes    the exclude patterns.
+         */
+        Record(File source, File location, String fingerprint, String includes, String excludes) {
+            this(source.getAbsolutePath(), location.getAbsolutePath(), fingerprint, includes, excludes);
+        }
+
+        private Record(String source, String location, String fingerprint, String includes, String excludes) {
+            this.source = source;
+            this.location = location;
+            this.fingerprint = fingerprint == null ? "" : fingerprint;
+            this.includes = includes == null ? "" : includes;
+            this.excludes = excludes == null ? "" : excludes;
+        }
+
+        /**
+         * Returns the key identifying the overlay, i.e. the combination of source and location.
+         *
+         * @return the key identifying the overlay.
+         */
+        String getKey() {
+            return source + " -> " + location;
+        }
+
+        File getLocation() {
+            return new File(location);
+        }
+
+        /**
+         * Returns {@code true} if this record is for the same unchanged source, unpacked with the same patterns.
+         *
+         * @param other the other record.
+         * @return {@code true} if the other record's entries can be reused.
+         */
+        boolean isSameAs(Record other) {
+            return other != null && getKey().equals(other.getKey()) && fingerprint.equals(other.fingerprint)
+                    && includes.equals(other.includes) && excludes.equals(other.excludes);
+        }
+
+        /**
+         * Returns the entries unpacked, i.e. the relative path of each file keyed to the signature of its content.
+         *
+         * @return the entries unpacked.
+         */
+        Map<String, String> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Returns the target files written, i.e. the relative path of each file keyed to the length and last
+         * modified time the file had once it was written, so that a target file changed since can be detected.
+         *
+         * @return the target files written.
+         */
+        Map<String, String> getTargets() {
+            return targets;
+        }
+
+        List<String> getDirectories() {
+            return directories;
+        }
+
+        /**
+         * Creates a copy of this record for a new build.
+         *
+         * @return the copy.
+         */
+        Record copy() {
+            Record copy = new Record(source, location, fingerprint, includes, excludes);
+            copy.entries.putAll(entries);
+            copy.targets.putAll(targets);
+            copy.directories.addAll(directories);
+            return copy;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("source", source);
+            map.put("location", location);
+            map.put("fingerprint", fingerprint);
+            map.put("includes", includes);
+            map.put("excludes", excludes);
+            map.put("directories", directories);
+            map.put("entries", entries);
+            map.put("targets", targets);
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Record fromMap(Map<String, Object> map) {
+            Record record = new Record((String) map.get("source"), (String) map.get("location"),
+                    (String) map.get("fingerprint"), (String) map.get("includes"), (String) map.get("excludes"));
+            Map<String, String> entries = (Map<String, String>) map.get("entries");
+            if (entries != null) {
+                record.entries.putAll(entries);
+            }
+            Map<String, String> targets = (Map<String, String>) map.get("targets");
+            if (targets != null) {
+                record.targets.putAll(targets);
+            }
+            List<String> directories = (List<String>) map.get("directories");
+            if (directories != null) {
+                record.directories.addAll(directories);
+            }
+            return record;
+        }
+    }
+}
@@ -19,16 +19,9 @@ package org.jszip.maven;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.execution.MavenSession;
-import org.apache.maven.model.Plugin;
-import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.MavenPluginManager;
-import org.apache.maven.plugin.Mojo;
-import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.plugin.PluginConfigurationException;
-import org.apache.maven.plugin.PluginContainerException;
-import org.apache.maven.plugin.descriptor.MojoDescriptor;
 import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -40,14 +33,11 @@ import org.apache.maven.shared.artifact.filter.collection.FilterArtifacts;
 import org.apache.maven.shared.artifact.filter.collection.ProjectTransitivityFilter;
 import org.apache.maven.shared.artifact.filter.collection.ScopeFilter;
 import org.apache.maven.shared.artifact.filter.collection.TypeFilter;
-import org.codehaus.plexus.archiver.ArchiverException;
-import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
-import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
-import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -72,12 +62,6 @@ public class UnpackMojo extends AbstractJSZipMojo {
     @Parameter(defaultValue = "${project.build.directory}/${project.build.finalName}", required = true)
     private File webappDirectory;
 
-    /**
-     * The Zip unarchiver.
-     */
-    @Component(role = org.codehaus.plexus.archiver.UnArchiver.class, hint = "zip")
-    private ZipUnArchiver zipUnArchiver;
-
     /**
      * The reactor projects
      */
@@ -123,6 +107,38 @@ public class UnpackMojo extends AbstractJSZipMojo {
     @Parameter
     private List<String> unpackExcludes;
 
+    /**
+     * The number of threads to use for unpacking. The artifacts are merged into a single index of file to the
+     * artifact that provides it (where several artifacts provide the same file the artifact that would have been
+     * unpacked last wins) and each file is then written once, with the writes spread across the threads.
+     */
+    @Parameter(property = "jszip.unpack.threads", defaultValue = "1")
+    private int unpackThreads;
+
+    /**
+     * Only apply the changes since the last unpack. What was unpacked is recorded in {@link #unpackManifest}: the
+     * artifacts that have not changed are skipped and for those that have only the files that were added, changed
+     * or removed are written or deleted.
+     */
+    @Parameter(property = "jszip.unpack.incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * The file recording what was unpacked, used when unpacking {@link #incremental}ly.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/jszip-unpack.json", required = true)
+    private File unpackManifest;
+
+    /**
+     * How the files of reactor modules' jszip directories are placed into the webapp: {@code copy},
+     * {@code hardlink} or {@code symlink}. Links fall back to copying where they cannot be created (e.g. across
+     * file systems or on Java 6). The goals of this plugin replace the files they write rather than modifying
+     * them in place, other plugins writing to the webapp must do the same, as modifying a linked file in place
+     * modifies the reactor module's file.
+     */
+    @Parameter(property = "jszip.unpack.linkMode", defaultValue = "copy")
+    private String linkMode;
+
     /**
      * @see org.apache.maven.plugin.Mojo#execute()
      */
@@ -163,6 +179,17 @@ public class UnpackMojo extends AbstractJSZipMojo {
 
 
 
+        LinkMode linkMode;
+        try {
+            linkMode = LinkMode.parse(this.linkMode);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Unsupported linkMode '" + this.linkMode
+                    + "', supported values are copy, hardlink and symlink");
+        }
+
+        OverlayUnpacker unpacker = new OverlayUnpacker(getLog(), unpackThreads);
+        unpacker.setManifestFile(incremental ? unpackManifest : null);
+        unpacker.setLinkMode(linkMode);
         for (Artifact artifact : artifacts) {
             String path = getPath(artifact);
             File artifactDirectory;
@@ -173,7 +200,22 @@ public class UnpackMojo extends AbstractJSZipMojo {
                 getLog().info("Unpacking " + ArtifactUtils.key(artifact) + " at path " + path);
                 artifactDirectory = new File(webappDirectory, path);
             }
-            unpack(artifact, artifactDirectory, includes, excludes);
+            if (artifact.getFile().isDirectory()) {
+                for (File directory : getReactorDirectories(artifact)) {
+                    unpacker.addDirectory(directory, artifactDirectory);
+                }
+            } else {
+                unpacker.addZip(artifact.getFile(), artifactDirectory,
+                        StringUtils.isEmpty(includes) ? null : includes.split(","),
+                        StringUtils.isEmpty(excludes) ? null : excludes.split(","));
+            }
+        }
+        try {
+            // all the artifacts are merged into a single index first, so each file is written exactly once
+            unpacker.unpack();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error unpacking into: " + webappDirectory + "\r\n"
+                    + e.toString(), e);
         }
     }
 
@@ -186,81 +228,25 @@ public class UnpackMojo extends AbstractJSZipMojo {
         return "";
     }
 
-    protected void unpack(Artifact artifact, File location, String includes, String excludes)
-            throws MojoExecutionException {
-        File file = artifact.getFile();
-        if (file.isDirectory()) {
-            MavenProject fromReactor = findProject(reactorProjects, artifact);
-            if (fromReactor != null) {
-                MavenSession session = this.session.clone();
-                session.setCurrentProject(fromReactor);
-                Plugin plugin = findThisPluginInProject(fromReactor);
-                try {
-                    // we cheat here and use our version of the plugin... but this is less of a cheat than the only
-                    // other way which is via reflection.
-                    MojoDescriptor jszipDescriptor = findMojoDescriptor(this.pluginDescriptor, JSZipMojo.class);
-
-                    for (PluginExecution pluginExecution : plugin.getExecutions()) {
-                        if (!pluginExecution.getGoals().contains(jszipDescriptor.getGoal())) {
-                            continue;
-                        }
-                        MojoExecution mojoExecution =
-                                createMojoExecution(plugin, pluginExecution, jszipDescriptor);
-                        JSZipMojo mojo = (JSZipMojo) mavenPluginManager
-                                .getConfiguredMojo(Mojo.class, session, mojoExecution);
-                        try {
-                            File contentDirectory = mojo.getContentDirectory();
-                            if (contentDirectory.isDirectory()) {
-                                FileUtils.copyDirectory(contentDirectory, location);
-                            }
-                            File resourcesDirectory = mojo.getResourcesDirectory();
-                            if (resourcesDirectory.isDirectory()) {
-                                FileUtils.copyDirectory(resourcesDirectory, location);
-                            }
-                        } finally {
-                            mavenPluginManager.releaseMojo(mojo, mojoExecution);
-                        }
-                    }
-                } catch (PluginConfigurationException e) {
-                    throw new MojoExecutionException(e.getMessage(), e);
-                } catch (IOException e) {
-                    throw new MojoExecutionException(e.getMessage(), e);
-                } catch (PluginContainerException e) {
-                    throw new MojoExecutionException(e.getMessage(), e);
-                }
-            } else {
-                throw new MojoExecutionException("Cannot find jzsip artifact: " + artifact.getId());
-            }
-        } else {
-            try {
-                location.mkdirs();
-
-                zipUnArchiver.setSourceFile(file);
-
-                zipUnArchiver.setDestDirectory(location);
-
-                if (StringUtils.isNotEmpty(excludes) || StringUtils.isNotEmpty(includes)) {
-                    IncludeExcludeFileSelector[] selectors =
-                            new IncludeExcludeFileSelector[]{new IncludeExcludeFileSelector()};
-
-                    if (StringUtils.isNotEmpty(excludes)) {
-                        selectors[0].setExcludes(excludes.split(","));
-                    }
-
-                    if (StringUtils.isNotEmpty(includes)) {
-                        selectors[0].setIncludes(includes.split(","));
-                    }
-
-                    zipUnArchiver.setFileSelectors(selectors);
-                }
-
-                zipUnArchiver.extract();
-            } catch (ArchiverException e) {
-                e.printStackTrace();
-                throw new MojoExecutionException("Error unpacking file: " + file + " to: " + location + "\r\n"
-                        + e.toString(), e);
+    /**
+     * Returns the content and resources directories of a reactor module's jszip artifact.
+     *
+     * @param artifact the artifact whose file is a directory in the reactor.
+     * @return the directories that exist, in the order they should be unpacked.
+     * @throws MojoExecutionException if the directories could not be determined.
+     */
+    private List<File> getReactorDirectories(Artifact artifact) throws MojoExecutionException {
+        MavenProject fromReactor = findProject(reactorProjects, artifact);
+        if (fromReactor == null) {
+            throw new MojoExecutionException("Cannot find jzsip artifact: " + artifact.getId());
+        }
+        List<File> result = new ArrayList<File>();
+        for (File directory : getReactorDirectories(session, mavenPluginManager, pluginDescriptor, fromReactor)) {
+            if (directory.isDirectory()) {
+                result.add(directory);
             }
         }
+        return result;
     }
 
 }
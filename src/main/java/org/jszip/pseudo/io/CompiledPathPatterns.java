@@ -0,0 +1,382 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of include or exclude patterns compiled for matching many paths. The results are the same as calling
+ * {@link SelectorUtils#matchPath(String, String, boolean)} and
+ * {@link SelectorUtils#matchPatternStart(String, String, boolean)} for each pattern, but the patterns are tokenized
+ * once up front and each path only once per match, and common pattern shapes are matched without trying every
+ * pattern:
+ * <ul>
+ * <li>{@code **} matches everything;</li>
+ * <li>{@code **&#47;*.ext} patterns are looked up by the extension of the path;</li>
+ * <li>patterns starting with a literal directory are only tried on paths starting with that directory.</li>
+ * </ul>
+ * {@code %regex[]} and {@code %ant[]} patterns are passed on to {@link SelectorUtils}.
+ */
+class CompiledPathPatterns {
+
+    private static final String DEEP = "**";
+
+    private static final char SEPARATOR = File.separatorChar;
+
+    private final boolean caseSensitive;
+
+    /**
+     * Whether one of the patterns matches every relative path.
+     */
+    private final boolean matchesAll;
+
+    /**
+     * Whether one of the patterns could match anything below every relative directory.
+     */
+    private final boolean startsDeep;
+
+    /**
+     * The extensions of the {@code **&#47;*.ext} patterns.
+     */
+    private final Set<String> extensions = new HashSet<String>();
+
+    /**
+     * The patterns starting with a literal directory, keyed by that directory.
+     */
+    private final Map<String, List<Pattern>> byFirstToken = new HashMap<String, List<Pattern>>();
+
+    /**
+     * The other patterns.
+     */
+    private final List<Pattern> others = new ArrayList<Pattern>();
+
+    /**
+     * All the compiled patterns, in order.
+     */
+    private final List<Pattern> all = new ArrayList<Pattern>();
+
+    /**
+     * The patterns that are passed on to {@link SelectorUtils}.
+     */
+    private final List<String> delegated = new ArrayList<String>();
+
+    /**
+     * All the patterns as given.
+     */
+    private final String[] patterns;
+
+    /**
+     * Compiles patterns.
+     *
+     * @param patterns      the normalized patterns, i.e. using {@link File#separatorChar}.
+     * @param caseSensitive whether matching is case sensitive.
+     */
+    CompiledPathPatterns(String[] patterns, boolean caseSensitive) {
+        this.patterns = patterns.clone();
+        this.caseSensitive = caseSensitive;
+        boolean matchesAll = false;
+        boolean startsDeep = false;
+        for (String pattern : patterns) {
+            if (pattern.startsWith(SelectorUtils.REGEX_HANDLER_PREFIX)
+                    || pattern.startsWith(SelectorUtils.ANT_HANDLER_PREFIX)) {
+                delegated.add(pattern);
+                continue;
+            }
+            Pattern compiled = new Pattern(pattern);
+            all.add(compiled);
+            if (compiled.absolute) {
+                others.add(compiled);
+                continue;
+            }
+            String[] tokens = compiled.tokens;
+            boolean deepOnly = true;
+            for (String token : tokens) {
+                deepOnly = deepOnly && DEEP.equals(token);
+            }
+            if (deepOnly && tokens.length > 0) {
+                matchesAll = true;
+            }
+            if (tokens.length > 0 && DEEP.equals(tokens[0])) {
+                startsDeep = true;
+            }
+            if (caseSensitive && tokens.length == 2 && DEEP.equals(tokens[0]) && tokens[1].startsWith("*.")
+                    && isLiteral(tokens[1].substring(2)) && tokens[1].indexOf('.', 2) == -1) {
+                extensions.add(tokens[1].substring(2));
+            } else if (caseSensitive && tokens.length > 1 && isLiteral(tokens[0])) {
+                List<Pattern> list = byFirstToken.get(tokens[0]);
+                if (list == null) {
+                    list = new ArrayList<Pattern>();
+                    byFirstToken.put(tokens[0], list);
+                }
+                list.add(compiled);
+            } else {
+                others.add(compiled);
+            }
+        }
+        this.matchesAll = matchesAll;
+        this.startsDeep = startsDeep;
+    }
+
+    /**
+     * Tests whether a path matches any of the patterns.
+     *
+     * @param path the path.
+     * @return {@code true} if the path matches at least one pattern.
+     */
+    boolean matches(String path) {
+        if (SEPARATOR == '/' && path.indexOf('\\') != -1) {
+            // leave the alternate separator handling to SelectorUtils
+            for (String pattern : patterns) {
+                if (SelectorUtils.matchPath(pattern, path, caseSensitive)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        boolean absolute = path.length() > 0 && path.charAt(0) == SEPARATOR;
+        String[] tokens = tokenize(path);
+        if (!absolute) {
+            if (matchesAll) {
+                return true;
+            }
+            if (!extensions.isEmpty() && tokens.length > 0) {
+                String name = tokens[tokens.length - 1];
+                int index = name.lastIndexOf('.');
+                if (index != -1 && extensions.contains(name.substring(index + 1))) {
+                    return true;
+                }
+            }
+            if (tokens.length > 0 && !byFirstToken.isEmpty()) {
+                List<Pattern> candidates = byFirstToken.get(tokens[0]);
+                if (candidates != null) {
+                    for (Pattern pattern : candidates) {
+                        if (pattern.matches(tokens)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        for (Pattern pattern : others) {
+            if (pattern.absolute == absolute && pattern.matches(tokens)) {
+                return true;
+            }
+        }
+        for (String pattern : delegated) {
+            if (SelectorUtils.matchPath(pattern, path, caseSensitive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests whether a directory could hold a path matching any of the patterns.
+     *
+     * @param path the path of the directory.
+     * @return {@code true} if the path matches the start of at least one pattern.
+     */
+    boolean matchesStart(String path) {
+        if (SEPARATOR == '/' && path.indexOf('\\') != -1) {
+            for (String pattern : patterns) {
+                if (SelectorUtils.matchPatternStart(pattern, path, caseSensitive)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        boolean absolute = path.length() > 0 && path.charAt(0) == SEPARATOR;
+        if (!absolute && startsDeep) {
+            return true;
+        }
+        String[] tokens = tokenize(path);
+        for (Pattern pattern : all) {
+            if (pattern.absolute == absolute && pattern.matchesStart(tokens)) {
+                return true;
+            }
+        }
+        for (String pattern : delegated) {
+            if (SelectorUtils.matchPatternStart(pattern, path, caseSensitive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLiteral(String token) {
+        return token.length() > 0 && token.indexOf('*') == -1 && token.indexOf('?') == -1;
+    }
+
+    /**
+     * Splits a path into its non-empty segments.
+     *
+     * @param path the path.
+     * @return the segments.
+     */
+    private static String[] tokenize(String path) {
+        List<String> tokens = new ArrayList<String>();
+        int start = 0;
+        int length = path.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || path.charAt(i) == SEPARATOR) {
+                if (i > start) {
+                    tokens.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return tokens.toArray(new String[tokens.size()]);
+    }
+
+    /**
+     * A single tokenized ant pattern.
+     */
+    private final class Pattern {
+        private final boolean absolute;
+        private final String[] tokens;
+        private final boolean[] literal;
+
+        private Pattern(String pattern) {
+            this.absolute = pattern.length() > 0 && pattern.charAt(0) == SEPARATOR;
+            this.tokens = tokenize(pattern);
+            this.literal = new boolean[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                literal[i] = isLiteral(tokens[i]);
+            }
+        }
+
+        private boolean matchToken(int index, String str) {
+            if (caseSensitive && literal[index]) {
+                return tokens[index].equals(str);
+            }
+            return SelectorUtils.match(tokens[index], str, caseSensitive);
+        }
+
+        /**
+         * The same algorithm as {@code SelectorUtils.matchAntPathPattern}, on pre-tokenized paths.
+         */
+        private boolean matches(String[] str) {
+            int patIdxStart = 0;
+            int patIdxEnd = tokens.length - 1;
+            int strIdxStart = 0;
+            int strIdxEnd = str.length - 1;
+
+            // up to the first **
+            while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
+                if (DEEP.equals(tokens[patIdxStart])) {
+                    break;
+                }
+                if (!matchToken(patIdxStart, str[strIdxStart])) {
+                    return false;
+                }
+                patIdxStart++;
+                strIdxStart++;
+            }
+            if (strIdxStart > strIdxEnd) {
+                return onlyDeep(patIdxStart, patIdxEnd);
+            } else if (patIdxStart > patIdxEnd) {
+                return false;
+            }
+
+            // up to the last **
+            while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
+                if (DEEP.equals(tokens[patIdxEnd])) {
+                    break;
+                }
+                if (!matchToken(patIdxEnd, str[strIdxEnd])) {
+                    return false;
+                }
+                patIdxEnd--;
+                strIdxEnd--;
+            }
+            if (strIdxStart > strIdxEnd) {
+                return onlyDeep(patIdxStart, patIdxEnd);
+            }
+
+            while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
+                int patIdxTmp = -1;
+                for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
+                    if (DEEP.equals(tokens[i])) {
+                        patIdxTmp = i;
+                        break;
+                    }
+                }
+                if (patIdxTmp == patIdxStart + 1) {
+                    // **/** situation, so skip one
+                    patIdxStart++;
+                    continue;
+                }
+                // find the pattern between patIdxStart and patIdxTmp in str between strIdxStart and strIdxEnd
+                int patLength = patIdxTmp - patIdxStart - 1;
+                int strLength = strIdxEnd - strIdxStart + 1;
+                int foundIdx = -1;
+                strLoop:
+                for (int i = 0; i <= strLength - patLength; i++) {
+                    for (int j = 0; j < patLength; j++) {
+                        if (!matchToken(patIdxStart + j + 1, str[strIdxStart + i + j])) {
+                            continue strLoop;
+                        }
+                    }
+                    foundIdx = strIdxStart + i;
+                    break;
+                }
+                if (foundIdx == -1) {
+                    return false;
+                }
+                patIdxStart = patIdxTmp;
+                strIdxStart = foundIdx + patLength;
+            }
+            return onlyDeep(patIdxStart, patIdxEnd);
+        }
+
+        /**
+         * The same algorithm as {@code SelectorUtils.matchAntPathPatternStart}, on pre-tokenized paths.
+         */
+        private boolean matchesStart(String[] str) {
+            int patIdxStart = 0;
+            int strIdxStart = 0;
+            while (patIdxStart < tokens.length && strIdxStart < str.length) {
+                if (DEEP.equals(tokens[patIdxStart])) {
+                    break;
+                }
+                if (!matchToken(patIdxStart, str[strIdxStart])) {
+                    return false;
+                }
+                patIdxStart++;
+                strIdxStart++;
+            }
+            return strIdxStart >= str.length || patIdxStart < tokens.length;
+        }
+
+        private boolean onlyDeep(int from, int to) {
+            for (int i = from; i <= to; i++) {
+                if (!DEEP.equals(tokens[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
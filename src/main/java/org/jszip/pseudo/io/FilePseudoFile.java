@@ -16,6 +16,8 @@
 
 package org.jszip.pseudo.io;
 
+import org.codehaus.plexus.util.IOUtil;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -122,14 +124,36 @@ public class FilePseudoFile extends PseudoFile {
      * {@inheritDoc}
      */
     OutputStream $newOutputStream() throws IOException {
-        return new FileOutputStream(delegate);
+        return $newOutputStream(false);
     }
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * The file is replaced rather than written in place, so that a file linked into the webapp by
+     * {@code jszip:unpack} is never written through to the module it was linked from.
      */
     OutputStream $newOutputStream(boolean append) throws IOException {
-        return new FileOutputStream(delegate, append);
+        byte[] content = null;
+        if (append && delegate.isFile()) {
+            InputStream inputStream = new FileInputStream(delegate);
+            try {
+                content = IOUtil.toByteArray(inputStream);
+            } finally {
+                IOUtil.close(inputStream);
+            }
+        }
+        delegate.delete();
+        OutputStream outputStream = new FileOutputStream(delegate);
+        if (content != null) {
+            try {
+                outputStream.write(content);
+            } catch (IOException e) {
+                IOUtil.close(outputStream);
+                throw e;
+            }
+        }
+        return outputStream;
     }
 
     /**
@@ -60,7 +60,16 @@ import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class for scanning a directory for files/directories which match certain
@@ -211,6 +220,21 @@ public class PseudoDirectoryScanner
     /** Whether or not everything tested so far has been included. */
     protected boolean everythingIncluded = true;
 
+    /** The number of threads scanning directories, <code>1</code> to scan on the calling thread. */
+    private int threads = 1;
+
+    /** The threads scanning directories during a parallel scan, <code>null</code> otherwise. */
+    private ExecutorService executor;
+
+    /** The file system being scanned during a parallel scan, as the scanning threads have no current one. */
+    private volatile PseudoFileSystem scanFileSystem;
+
+    /** The number of directories queued or being scanned during a parallel scan. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** The first failure of a parallel scan. */
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
     /**
      * Sole constructor.
      */
@@ -219,7 +243,11 @@ public class PseudoDirectoryScanner
     }
 
     public PseudoFileSystem getFileSystem() {
-        return fs == null ? PseudoFileSystem.current() : fs;
+        if (fs != null) {
+            return fs;
+        }
+        PseudoFileSystem scanFileSystem = this.scanFileSystem;
+        return scanFileSystem != null ? scanFileSystem : PseudoFileSystem.current();
     }
 
     public void setFileSystem(PseudoFileSystem fs) {
@@ -259,6 +287,29 @@ public class PseudoDirectoryScanner
         this.followSymlinks = followSymlinks;
     }
 
+    /**
+     * Returns whether or not symbolic links are followed.
+     *
+     * @return whether or not symbolic links are followed.
+     */
+    boolean isFollowSymlinks()
+    {
+        return followSymlinks;
+    }
+
+    /**
+     * Sets the number of threads used to scan. With more than one thread each directory is listed by whichever
+     * thread is free, so that the listings of different directories overlap, which helps on slow file systems
+     * and large trees. The results of a parallel scan are sorted, so they do not depend on the order in which the
+     * directories were scanned.
+     *
+     * @param threads the number of threads, <code>1</code> (the default) to scan on the calling thread.
+     */
+    public void setThreads( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
     /**
      * Returns whether or not the scanner has included all the files or
      * directories it has come across so far.
@@ -282,20 +333,7 @@ public class PseudoDirectoryScanner
      */
     public void scan() throws IllegalStateException
     {
-        if ( basedir == null )
-        {
-            throw new IllegalStateException( "No basedir set" );
-        }
-        if ( !basedir.exists() )
-        {
-            throw new IllegalStateException( "basedir " + basedir
-                                             + " does not exist" );
-        }
-        if ( !basedir.isDirectory() )
-        {
-            throw new IllegalStateException( "basedir " + basedir
-                                             + " is not a directory" );
-        }
+        checkBasedir();
 
         setupDefaultFilters();
 
@@ -330,7 +368,163 @@ public class PseudoDirectoryScanner
         {
             dirsNotIncluded.addElement( "" );
         }
-        scandir( basedir, "", true );
+        if ( threads > 1 )
+        {
+            parallelScan();
+        }
+        else
+        {
+            scandir( basedir, "", true );
+        }
+    }
+
+    /**
+     * Returns the files which match at least one include pattern, don't
+     * match any exclude patterns and are selected, without scanning up
+     * front. The base directory is scanned as the returned iterators are
+     * advanced, one directory listing at a time, so that callers can start
+     * on the first files before the scan is complete, and nothing but the
+     * included files is ever recorded.
+     * <p>
+     * The files are returned in the same order as {@link #getIncludedFiles()}
+     * after a single threaded {@link #scan()}, and none of the results of
+     * {@link #scan()} are updated. With more than one
+     * {@linkplain #setThreads(int) thread} the listings cannot be streamed
+     * in order, so a parallel {@link #scan()} is run instead and its
+     * included files are returned.
+     *
+     * @return the names of the included files, relative to the base directory.
+     * @exception IllegalStateException if the base directory was set
+     *            incorrectly (i.e. if it is <code>null</code>, doesn't exist,
+     *            or isn't a directory).
+     */
+    public Iterable<String> includedFiles() throws IllegalStateException
+    {
+        if ( threads > 1 )
+        {
+            scan();
+            return Arrays.asList( getIncludedFiles() );
+        }
+
+        checkBasedir();
+
+        setupDefaultFilters();
+
+        final PseudoFileSystem fs = getFileSystem();
+        return new Iterable<String>()
+        {
+            public Iterator<String> iterator()
+            {
+                return new IncludedFilesIterator( fs );
+            }
+        };
+    }
+
+    private void checkBasedir() throws IllegalStateException
+    {
+        if ( basedir == null )
+        {
+            throw new IllegalStateException( "No basedir set" );
+        }
+        if ( !basedir.exists() )
+        {
+            throw new IllegalStateException( "basedir " + basedir
+                                             + " does not exist" );
+        }
+        if ( !basedir.isDirectory() )
+        {
+            throw new IllegalStateException( "basedir " + basedir
+                                             + " is not a directory" );
+        }
+    }
+
+    /**
+     * Scans the base directory with {@link #threads} threads, each directory being a separate task.
+     */
+    private void parallelScan()
+    {
+        scanFileSystem = getFileSystem();
+        // compile the patterns up front rather than in whichever scanning thread needs them first
+        getCompiledIncludes();
+        getCompiledExcludes();
+        executor = Executors.newFixedThreadPool( threads );
+        failure.set( null );
+        try
+        {
+            descend( basedir, "", true );
+            synchronized ( pending )
+            {
+                while ( pending.get() > 0 )
+                {
+                    pending.wait();
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while scanning " + basedir, e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            executor = null;
+            scanFileSystem = null;
+        }
+        if ( failure.get() != null )
+        {
+            throw failure.get();
+        }
+        for ( Vector<String> results : Arrays.asList( filesIncluded, filesNotIncluded, filesExcluded,
+                                                      filesDeselected, dirsIncluded, dirsNotIncluded,
+                                                      dirsExcluded, dirsDeselected ) )
+        {
+            Collections.sort( results );
+        }
+    }
+
+    /**
+     * Scans a subdirectory, either directly or, during a parallel scan, as a separate task.
+     *
+     * @param dir   The directory to scan.
+     * @param vpath The path relative to the base directory.
+     * @param fast  Whether or not this call is part of a fast scan.
+     */
+    private void descend( final PseudoFile dir, final String vpath, final boolean fast )
+    {
+        if ( executor == null )
+        {
+            scandir( dir, vpath, fast );
+            return;
+        }
+        pending.incrementAndGet();
+        executor.execute( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    if ( failure.get() == null )
+                    {
+                        scandir( dir, vpath, fast );
+                    }
+                }
+                catch ( RuntimeException e )
+                {
+                    failure.compareAndSet( null, e );
+                }
+                finally
+                {
+                    if ( pending.decrementAndGet() == 0 )
+                    {
+                        synchronized ( pending )
+                        {
+                            pending.notifyAll();
+                        }
+                    }
+                }
+            }
+        } );
     }
 
     /**
@@ -453,7 +647,7 @@ public class PseudoDirectoryScanner
                             dirsIncluded.addElement( name );
                             if ( fast )
                             {
-                                scandir( file, name + getFileSystem().getPathSeparator(), fast );
+                                descend( file, name + getFileSystem().getPathSeparator(), fast );
                             }
                         }
                         else
@@ -462,7 +656,7 @@ public class PseudoDirectoryScanner
                             dirsDeselected.addElement( name );
                             if ( fast && couldHoldIncluded( name ) )
                             {
-                                scandir( file, name + getFileSystem().getPathSeparator(), fast );
+                                descend( file, name + getFileSystem().getPathSeparator(), fast );
                             }
                         }
 
@@ -473,7 +667,7 @@ public class PseudoDirectoryScanner
                         dirsExcluded.addElement( name );
                         if ( fast && couldHoldIncluded( name ) )
                         {
-                            scandir( file, name + getFileSystem().getPathSeparator(), fast );
+                            descend( file, name + getFileSystem().getPathSeparator(), fast );
                         }
                     }
                 }
@@ -483,12 +677,12 @@ public class PseudoDirectoryScanner
                     dirsNotIncluded.addElement( name );
                     if ( fast && couldHoldIncluded( name ) )
                     {
-                        scandir( file, name + getFileSystem().getPathSeparator(), fast );
+                        descend( file, name + getFileSystem().getPathSeparator(), fast );
                     }
                 }
                 if ( !fast )
                 {
-                    scandir( file, name + getFileSystem().getPathSeparator(), fast );
+                    descend( file, name + getFileSystem().getPathSeparator(), fast );
                 }
             }
             else if ( file.isFile() )
@@ -703,6 +897,12 @@ public class PseudoDirectoryScanner
     /** The patterns for the files to be excluded. */
     protected String[] excludes;
 
+    /** The {@link #includes} compiled for matching, {@code null} until needed. */
+    private CompiledPathPatterns compiledIncludes;
+
+    /** The {@link #excludes} compiled for matching, {@code null} until needed. */
+    private CompiledPathPatterns compiledExcludes;
+
     /**
      * Whether or not the file system should be treated as a case sensitive
      * one.
@@ -718,6 +918,8 @@ public class PseudoDirectoryScanner
     public void setCaseSensitive( boolean isCaseSensitive )
     {
         this.isCaseSensitive = isCaseSensitive;
+        compiledIncludes = null;
+        compiledExcludes = null;
     }
 
     /**
@@ -858,6 +1060,7 @@ public class PseudoDirectoryScanner
      */
     public void setIncludes( String[] includes )
     {
+        compiledIncludes = null;
         if ( includes == null )
         {
             this.includes = null;
@@ -886,6 +1089,7 @@ public class PseudoDirectoryScanner
      */
     public void setExcludes( String[] excludes )
     {
+        compiledExcludes = null;
         if ( excludes == null )
         {
             this.excludes = null;
@@ -944,14 +1148,7 @@ public class PseudoDirectoryScanner
      */
     protected boolean isIncluded( String name )
     {
-        for ( int i = 0; i < includes.length; i++ )
-        {
-            if ( matchPath( includes[i], name, isCaseSensitive ) )
-            {
-                return true;
-            }
-        }
-        return false;
+        return getCompiledIncludes().matches( name );
     }
 
     /**
@@ -964,14 +1161,7 @@ public class PseudoDirectoryScanner
      */
     protected boolean couldHoldIncluded( String name )
     {
-        for ( int i = 0; i < includes.length; i++ )
-        {
-            if ( matchPatternStart( includes[i], name, isCaseSensitive ) )
-            {
-                return true;
-            }
-        }
-        return false;
+        return getCompiledIncludes().matchesStart( name );
     }
 
     /**
@@ -984,14 +1174,35 @@ public class PseudoDirectoryScanner
      */
     protected boolean isExcluded( String name )
     {
-        for ( int i = 0; i < excludes.length; i++ )
+        return getCompiledExcludes().matches( name );
+    }
+
+    /**
+     * Returns the include patterns compiled for matching, compiling them if they have changed.
+     *
+     * @return the compiled include patterns.
+     */
+    private CompiledPathPatterns getCompiledIncludes()
+    {
+        if ( compiledIncludes == null )
         {
-            if ( matchPath( excludes[i], name, isCaseSensitive ) )
-            {
-                return true;
-            }
+            compiledIncludes = new CompiledPathPatterns( includes, isCaseSensitive );
         }
-        return false;
+        return compiledIncludes;
+    }
+
+    /**
+     * Returns the exclude patterns compiled for matching, compiling them if they have changed.
+     *
+     * @return the compiled exclude patterns.
+     */
+    private CompiledPathPatterns getCompiledExcludes()
+    {
+        if ( compiledExcludes == null )
+        {
+            compiledExcludes = new CompiledPathPatterns( excludes, isCaseSensitive );
+        }
+        return compiledExcludes;
     }
 
     /**
@@ -1011,10 +1222,14 @@ public class PseudoDirectoryScanner
             newExcludes[i + excludesLength] = DEFAULTEXCLUDES[i].replace( '/', File.separatorChar );
         }
         excludes = newExcludes;
+        compiledExcludes = null;
     }
 
     protected void setupDefaultFilters()
     {
+        // subclasses may have changed the protected pattern arrays directly
+        compiledIncludes = null;
+        compiledExcludes = null;
         if ( includes == null )
         {
             // No includes supplied, so set it to 'matches all'
@@ -1026,4 +1241,104 @@ public class PseudoDirectoryScanner
             excludes = new String[0];
         }
     }
+
+    /**
+     * Walks the base directory depth first, the same way as a fast
+     * {@link #scandir(PseudoFile, String, boolean)}, returning the included
+     * files as they are found.
+     */
+    private final class IncludedFilesIterator
+        implements Iterator<String>
+    {
+        private final PseudoFileSystem fs;
+
+        /** The directories being listed, innermost last. */
+        private final LinkedList<Listing> listings = new LinkedList<Listing>();
+
+        /** The next included file, or <code>null</code> if it has not been looked for yet. */
+        private String next;
+
+        private IncludedFilesIterator( PseudoFileSystem fs )
+        {
+            this.fs = fs;
+            listings.add( new Listing( basedir, "" ) );
+        }
+
+        public boolean hasNext()
+        {
+            while ( next == null && !listings.isEmpty() )
+            {
+                Listing listing = listings.getLast();
+                if ( listing.index >= listing.children.length )
+                {
+                    listings.removeLast();
+                    continue;
+                }
+                String newfile = listing.children[listing.index++].getName();
+                try
+                {
+                    if ( !followSymlinks && isSymbolicLink( listing.dir, newfile ) )
+                    {
+                        continue;
+                    }
+                }
+                catch ( IOException ioe )
+                {
+                    // treated as not a link, the same as scandir
+                }
+                String name = listing.vpath + newfile;
+                PseudoFile file = fs.getPseudoFile( listing.dir, newfile );
+                if ( file.isDirectory() )
+                {
+                    boolean selected = isIncluded( name ) && !isExcluded( name ) && isSelected( name, file );
+                    if ( selected || couldHoldIncluded( name ) )
+                    {
+                        listings.add( new Listing( file, name + fs.getPathSeparator() ) );
+                    }
+                }
+                else if ( file.isFile() && isIncluded( name ) && !isExcluded( name ) && isSelected( name, file ) )
+                {
+                    next = name;
+                }
+            }
+            return next != null;
+        }
+
+        public String next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            return result;
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * A directory being listed.
+         */
+        private final class Listing
+        {
+            private final PseudoFile dir;
+
+            private final String vpath;
+
+            private final PseudoFile[] children;
+
+            private int index;
+
+            private Listing( PseudoFile dir, String vpath )
+            {
+                this.dir = dir;
+                this.vpath = vpath;
+                this.children = fs.listChildren( dir, PseudoFileFilter.FILTER_NONE );
+            }
+        }
+    }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.pseudo.io;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A snapshot of the files included by a {@link PseudoDirectoryScanner} that can be brought up to date without a full
+ * scan. Each scanned directory remembers its {@link PseudoFileSystem#getListingStamps(PseudoFile)}, and a
+ * {@link #refresh()} only lists the directories whose stamps have changed, rescanning new subdirectories and
+ * forgetting removed ones. Only the included files and the directories that were descended into are recorded.
+ * <p/>
+ * Changes to the content of a file do not change the listing of its directory, so only files being added or removed
+ * are reported.
+ */
+public class PseudoDirectorySnapshot {
+
+    private final PseudoDirectoryScanner scanner;
+
+    private final PseudoFileSystem fs;
+
+    private final PseudoFile basedir;
+
+    /**
+     * The scanned directories keyed by their path relative to the base directory, with a trailing {@code /} except
+     * for the base directory itself, which is the empty string.
+     */
+    private final Map<String, Directory> directories = new HashMap<String, Directory>();
+
+    /**
+     * The included files.
+     */
+    private final Set<String> includedFiles = new TreeSet<String>();
+
+    /**
+     * Creates an empty snapshot, the first {@link #refresh()} scans the whole base directory.
+     *
+     * @param scanner the scanner providing the file system, the base directory and the include and exclude patterns.
+     */
+    public PseudoDirectorySnapshot(PseudoDirectoryScanner scanner) {
+        if (scanner.getBasedir() == null) {
+            throw new IllegalStateException("No basedir set");
+        }
+        this.scanner = scanner;
+        this.fs = scanner.getFileSystem();
+        this.basedir = scanner.getBasedir();
+    }
+
+    /**
+     * Brings the snapshot up to date.
+     *
+     * @return the files added and removed since the previous refresh.
+     */
+    public synchronized Changes refresh() {
+        scanner.setupDefaultFilters();
+        List<String> added = new ArrayList<String>();
+        List<String> removed = new ArrayList<String>();
+        refresh(basedir, "", added, removed);
+        return new Changes(added, removed);
+    }
+
+    /**
+     * Marks a directory as changed, for when the caller knows better than the listing stamps, e.g. from a file
+     * system change event. The directory is listed again by the next {@link #refresh()}.
+     *
+     * @param path the path of the directory relative to the base directory.
+     */
+    public synchronized void invalidate(String path) {
+        path = StringUtils.strip(path, "/");
+        Directory directory = directories.get(path.length() == 0 ? "" : path + "/");
+        if (directory != null) {
+            directory.stamps = null;
+            PseudoFile dir = basedir;
+            for (String name : StringUtils.split(path, '/')) {
+                dir = fs.getPseudoFile(dir, name);
+            }
+            fs.invalidateListing(dir);
+        }
+    }
+
+    /**
+     * Returns the included files as of the last {@link #refresh()}.
+     *
+     * @return the names of the included files, relative to the base directory.
+     */
+    public synchronized String[] getIncludedFiles() {
+        return includedFiles.toArray(new String[includedFiles.size()]);
+    }
+
+    private void refresh(PseudoFile dir, String vpath, List<String> added, List<String> removed) {
+        Directory previous = directories.get(vpath);
+        Directory current = previous;
+        long[] stamps = fs.getListingStamps(dir);
+        if (previous == null || previous.stamps == null || !Arrays.equals(previous.stamps, stamps)) {
+            current = scandir(dir, vpath, stamps);
+            directories.put(vpath, current);
+            for (String name : current.files) {
+                if ((previous == null || !previous.files.contains(name)) && includedFiles.add(name)) {
+                    added.add(name);
+                }
+            }
+            if (previous != null) {
+                for (String name : previous.files) {
+                    if (!current.files.contains(name) && includedFiles.remove(name)) {
+                        removed.add(name);
+                    }
+                }
+                for (String name : previous.subdirs) {
+                    if (!current.subdirs.contains(name)) {
+                        forget(vpath + name + "/", removed);
+                    }
+                }
+            }
+        }
+        for (String name : current.subdirs) {
+            refresh(fs.getPseudoFile(dir, name), vpath + name + "/", added, removed);
+        }
+    }
+
+    private void forget(String vpath, List<String> removed) {
+        Directory directory = directories.remove(vpath);
+        if (directory == null) {
+            return;
+        }
+        for (String name : directory.files) {
+            if (includedFiles.remove(name)) {
+                removed.add(name);
+            }
+        }
+        for (String name : directory.subdirs) {
+            forget(vpath + name + "/", removed);
+        }
+    }
+
+    /**
+     * Lists a single directory, the same way as a fast scan.
+     */
+    private Directory scandir(PseudoFile dir, String vpath, long[] stamps) {
+        Directory result = new Directory(stamps);
+        for (PseudoFile file : fs.listChildren(dir, PseudoFileFilter.FILTER_NONE)) {
+            String newfile = file.getName();
+            try {
+                if (!scanner.isFollowSymlinks() && scanner.isSymbolicLink(dir, newfile)) {
+                    continue;
+                }
+            } catch (IOException e) {
+                // treated as not a link, the same as the scanner
+            }
+            String name = vpath + newfile;
+            if (file.isDirectory()) {
+                boolean selected = scanner.isIncluded(name) && !scanner.isExcluded(name)
+                        && scanner.isSelected(name, file);
+                if (selected || scanner.couldHoldIncluded(name)) {
+                    result.subdirs.add(newfile);
+                }
+            } else if (file.isFile() && scanner.isIncluded(name) && !scanner.isExcluded(name)
+                    && scanner.isSelected(name, file)) {
+                result.files.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A scanned directory.
+     */
+    private static final class Directory {
+        /**
+         * The listing stamps when the directory was scanned, {@code null} to scan it again.
+         */
+        private long[] stamps;
+
+        /**
+         * The included files, relative to the base directory.
+         */
+        private final Set<String> files = new LinkedHashSet<String>();
+
+        /**
+         * The names of the subdirectories that were descended into.
+         */
+        private final Set<String> subdirs = new LinkedHashSet<String>();
+
+        private Directory(long[] stamps) {
+            this.stamps = stamps;
+        }
+    }
+
+    /**
+     * The files added and removed by a {@link #refresh()}.
+     */
+    public static final class Changes {
+        private final List<String> added;
+
+        private final List<String> removed;
+
+        private Changes(List<String> added, List<String> removed) {
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+        }
+
+        /**
+         * Returns the files that were added.
+         *
+         * @return the names of the added files, relative to the base directory.
+         */
+        public List<String> getAdded() {
+            return added;
+        }
+
+        /**
+         * Returns the files that were removed.
+         *
+         * @return the names of the removed files, relative to the base directory.
+         */
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns whether nothing was added or removed.
+         *
+         * @return {@code true} if nothing was added or removed.
+         */
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+}
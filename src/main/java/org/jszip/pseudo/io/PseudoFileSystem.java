@@ -17,8 +17,7 @@
 package org.jszip.pseudo.io;
 
 import org.apache.commons.lang3.StringUtils;
-import org.codehaus.plexus.archiver.zip.ZipEntry;
-import org.codehaus.plexus.archiver.zip.ZipFile;
+import org.jszip.zip.ZipIndex;
 import org.mozilla.javascript.Context;
 
 import java.io.File;
@@ -26,12 +25,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class PseudoFileSystem {
     /**
@@ -43,6 +43,11 @@ public class PseudoFileSystem {
 
     private final Layer[] layers;
 
+    /**
+     * The merged listings of the directories, keyed by absolute path.
+     */
+    private final ConcurrentMap<String, Listing> listings = new ConcurrentHashMap<String, Listing>();
+
     public PseudoFileSystem(Layer... layers) {
         this.layers = layers;
     }
@@ -56,13 +61,7 @@ public class PseudoFileSystem {
     }
 
     public PseudoFile[] listChildren(PseudoFile dir, PseudoFileFilter filter) {
-        TreeMap<String, Layer> names = new TreeMap<String, Layer>();
-        final String path = dir.getAbsolutePath(this);
-        for (int i = layers.length - 1; i >= 0; i--) {
-            for (String name : layers[i].listChildren(path)) {
-                names.put(name, layers[i]);
-            }
-        }
+        Map<String, Layer> names = getListing(dir.getAbsolutePath(this));
         List<PseudoFile> result = new ArrayList<PseudoFile>(names.size());
         for (Map.Entry<String, Layer> entry : names.entrySet()) {
             if (filter.accept(entry.getKey())) {
@@ -95,11 +94,9 @@ public class PseudoFileSystem {
         if (name.equals("..")) {
             return parent.getParentFile();
         }
-        String parentPath = parent.getAbsolutePath(this);
-        for (Layer layer : layers) {
-            if (layer.listChildren(parentPath).contains(name)) {
-                return layer.makeChild(this, parent, name);
-            }
+        Layer owner = getListing(parent.getAbsolutePath(this)).get(name);
+        if (owner != null) {
+            return owner.makeChild(this, parent, name);
         }
         if (layers.length == 0) {
             return new VirtualDirectoryPseudoFile(parent, name);
@@ -107,6 +104,77 @@ public class PseudoFileSystem {
         return layers[0].makeChild(this, parent, name);
     }
 
+    /**
+     * Returns the names in a directory, merged from all the layers, each keyed to the first layer that has it.
+     * Listings are cached for as long as every layer reports the same {@link Layer#listingStamp(String)}.
+     *
+     * @param path the absolute path of the directory.
+     * @return the names in the directory and the layer each one comes from.
+     */
+    private Map<String, Layer> getListing(String path) {
+        long[] stamps = getListingStamps(path);
+        boolean cacheable = stamps != null;
+        Listing listing = cacheable ? listings.get(path) : null;
+        if (listing != null && Arrays.equals(listing.stamps, stamps)) {
+            return listing.names;
+        }
+        TreeMap<String, Layer> names = new TreeMap<String, Layer>();
+        for (int i = layers.length - 1; i >= 0; i--) {
+            for (String name : layers[i].listChildren(path)) {
+                names.put(name, layers[i]);
+            }
+        }
+        Map<String, Layer> result = Collections.unmodifiableMap(names);
+        if (cacheable) {
+            listings.put(path, new Listing(stamps, result));
+        } else {
+            listings.remove(path);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the cached listing of a directory, for when a change is known that its stamps may not show.
+     *
+     * @param dir the directory.
+     */
+    void invalidateListing(PseudoFile dir) {
+        listings.remove(dir.getAbsolutePath(this));
+    }
+
+    /**
+     * Returns the stamps of the listing of a directory, one per layer. The names in the directory cannot have
+     * changed for as long as its stamps stay the same.
+     *
+     * @param dir the directory.
+     * @return the stamps of the listing, or {@code null} if a layer cannot tell whether the listing has changed.
+     * @see Layer#listingStamp(String)
+     */
+    public long[] getListingStamps(PseudoFile dir) {
+        return getListingStamps(dir.getAbsolutePath(this));
+    }
+
+    private long[] getListingStamps(String path) {
+        long[] stamps = new long[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            stamps[i] = layers[i].listingStamp(path);
+            if (stamps[i] == -1) {
+                return null;
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Releases the resources held by the layers, such as open zip files. The file system can still be used
+     * afterwards, the resources are acquired again when needed.
+     */
+    public void close() {
+        for (Layer layer : layers) {
+            layer.close();
+        }
+    }
+
     public synchronized void installInContext() {
         Context.getCurrentContext().putThreadLocal(KEY, this);
     }
@@ -127,15 +195,37 @@ public class PseudoFileSystem {
 
         public abstract List<String> listChildren(String relativePath);
 
+        /**
+         * Returns a value that changes whenever the result of {@link #listChildren(String)} for the path could have
+         * changed, so that the listing can be cached until then.
+         *
+         * @param relativePath the path of the directory.
+         * @return the stamp of the listing, or {@code -1} if the listing should not be cached.
+         */
+        public long listingStamp(String relativePath) {
+            return -1;
+        }
+
         public PseudoFile makeChild(PseudoFile parent, String name) {
             return makeChild(PseudoFileSystem.current(), parent, name);
         }
 
         public abstract PseudoFile makeChild(PseudoFileSystem fs, PseudoFile parent, String name);
 
+        /**
+         * Releases the resources held by the layer.
+         */
+        public void close() {
+        }
+
     }
 
     public static class FileLayer extends Layer {
+        /**
+         * How long after a directory was modified before its listing can be cached.
+         */
+        private static final long RACY_INTERVAL = 2000;
+
         private final String prefix;
         private final File root;
 
@@ -166,6 +256,23 @@ public class PseudoFileSystem {
             return Collections.emptyList();
         }
 
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * The stamp is the directory's timestamp, which changes whenever an entry is added, removed or renamed.
+         * Directories modified within the last {@link #RACY_INTERVAL} are not cached, as the timestamp may not
+         * change again for changes made within its resolution.
+         */
+        @Override
+        public long listingStamp(String relativePath) {
+            relativePath = StringUtils.removeEnd(relativePath, "/") + "/";
+            if (relativePath.startsWith(prefix)) {
+                long lastModified = new File(root, relativePath.substring(prefix.length())).lastModified();
+                return System.currentTimeMillis() - lastModified < RACY_INTERVAL ? -1 : lastModified;
+            }
+            return 0;
+        }
+
         @Override
         public PseudoFile makeChild(PseudoFileSystem fs, PseudoFile parent, String name) {
             String relativePath = StringUtils.removeEnd(parent.getAbsolutePath(fs), "/") + "/" + name;
@@ -197,37 +304,39 @@ public class PseudoFileSystem {
     public static class ZipLayer extends PseudoFileSystem.Layer {
         private final String prefix;
         private final File zipFile;
-        private final Map<String, ZipEntry> contents;
+        private final ZipIndex index;
+        private final ZipFilePool pool;
 
         public ZipLayer(String prefix, File zipFile) throws IOException {
             this.prefix = StringUtils.isEmpty(prefix) ? "/" : "/" + StringUtils.removeEnd(
                     StringUtils.removeStart(prefix, "/"), "/") + "/";
             this.zipFile = zipFile;
-            ZipFile file = new ZipFile(zipFile);
-            Map<String, ZipEntry> contents = new TreeMap<String, ZipEntry>();
-            Enumeration<ZipEntry> entries = file.getEntries();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                contents.put(this.prefix + StringUtils.removeStart(entry.getName(), "/"), entry);
-            }
-
-            this.contents = contents;
+            this.index = ZipIndex.cached(zipFile);
+            this.pool = new ZipFilePool(zipFile, true);
         }
 
         @Override
         public List<String> listChildren(String relativePath) {
             relativePath = StringUtils.removeEnd(relativePath, "/") + "/";
-            if (relativePath.startsWith(prefix) || prefix.equals(relativePath + "/")) {
-                final String pathFragment = StringUtils.removeEnd(relativePath, "/") + "/";
+            if (relativePath.startsWith(prefix)) {
+                final String pathFragment = relativePath.substring(prefix.length());
                 Set<String> result = new LinkedHashSet<String>();
-                for (String path : contents.keySet()) {
-                    if (path.startsWith(pathFragment)) {
-                        int index = path.indexOf('/', pathFragment.length());
-                        if (index == -1) {
-                            result.add(path.substring(pathFragment.length()));
-                        } else {
-                            result.add(path.substring(pathFragment.length(), index));
+                int i = index.ceiling(pathFragment);
+                while (i < index.size()) {
+                    String path = index.getName(i);
+                    if (!path.startsWith(pathFragment)) {
+                        break;
+                    }
+                    int end = path.indexOf('/', pathFragment.length());
+                    if (end == -1) {
+                        result.add(path.substring(pathFragment.length()));
+                        i++;
+                    } else {
+                        if (end > pathFragment.length()) {
+                            result.add(path.substring(pathFragment.length(), end));
                         }
+                        // skip the rest of the subdirectory, '0' being the character after '/'
+                        i = index.ceiling(path.substring(0, end) + '0');
                     }
                 }
                 return new ArrayList<String>(result);
@@ -241,12 +350,29 @@ public class PseudoFileSystem {
             return Collections.emptyList();
         }
 
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * The index of the zip file never changes, so listings can always be cached.
+         */
+        @Override
+        public long listingStamp(String relativePath) {
+            return 0;
+        }
+
         @Override
         public PseudoFile makeChild(PseudoFileSystem fs, PseudoFile parent, String name) {
             String relativePath = StringUtils.removeEnd(parent.getAbsolutePath(fs), "/") + "/" + name;
-            final ZipEntry entry = contents.get(relativePath);
-            if (entry != null) {
-                return new ZipPseudoFile(parent, zipFile, entry);
+            if (relativePath.startsWith(prefix)) {
+                String path = relativePath.substring(prefix.length());
+                final int position = index.indexOf(path);
+                if (position != -1) {
+                    return new ZipPseudoFile(parent, pool, index, position);
+                }
+                if (index.hasPrefix(path + "/")) {
+                    return new VirtualDirectoryPseudoFile(parent, name);
+                }
+                return new NotExistingPseudoFile(parent, name);
             }
             if (prefix.equals(relativePath + "/")) {
                 return new VirtualDirectoryPseudoFile(parent, name);
@@ -254,14 +380,19 @@ public class PseudoFileSystem {
             if (!StringUtils.isEmpty(prefix) && prefix.startsWith(relativePath)) {
                 return new VirtualDirectoryPseudoFile(parent, name);
             }
-            for (String childPath : contents.keySet()) {
-                if (!StringUtils.isEmpty(childPath) && childPath.startsWith(relativePath)) {
-                    return new VirtualDirectoryPseudoFile(parent, name);
-                }
-            }
             return new NotExistingPseudoFile(parent, name);
         }
 
+        /**
+         * {@inheritDoc}
+         * <p/>
+         * Closes the zip file that the entries are read from.
+         */
+        @Override
+        public void close() {
+            pool.close();
+        }
+
         @Override
         public String toString() {
             final StringBuilder sb = new StringBuilder();
@@ -273,4 +404,17 @@ public class PseudoFileSystem {
         }
     }
 
+    /**
+     * A cached merged directory listing.
+     */
+    private static final class Listing {
+        private final long[] stamps;
+        private final Map<String, Layer> names;
+
+        private Listing(long[] stamps, Map<String, Layer> names) {
+            this.stamps = stamps;
+            this.names = names;
+        }
+    }
+
 }
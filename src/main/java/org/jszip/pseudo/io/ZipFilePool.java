@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.archiver.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The open {@link ZipFile} of a zip file, shared by all its readers. Each reader must {@link #acquire()} a lease and
+ * {@link #release(Lease)} it when done. A pool that keeps its zip file open between leases is owned by a
+ * {@link PseudoFileSystem.ZipLayer} and closed with its file system, the zip file is reopened if the file on disk has
+ * changed.
+ */
+class ZipFilePool {
+
+    private final File file;
+
+    /**
+     * Whether to keep the zip file open when it has no leases.
+     */
+    private final boolean keepOpen;
+
+    /**
+     * The lease on the open zip file or {@code null} if the zip file is not open.
+     */
+    private Lease current;
+
+    /**
+     * Creates a pool for a zip file.
+     *
+     * @param file     the zip file.
+     * @param keepOpen {@code true} to keep the zip file open until {@link #close()}, {@code false} to close it as
+     *                 soon as it has no leases.
+     */
+    ZipFilePool(File file, boolean keepOpen) {
+        this.file = file;
+        this.keepOpen = keepOpen;
+    }
+
+    /**
+     * Acquires a lease on the open zip file.
+     *
+     * @return the lease, which must be released.
+     * @throws IOException if the zip file could not be opened.
+     */
+    synchronized Lease acquire() throws IOException {
+        if (current != null && (current.lastModified != file.lastModified() || current.length != file.length())) {
+            retire();
+        }
+        if (current == null) {
+            current = new Lease(file);
+        }
+        current.count++;
+        return current;
+    }
+
+    /**
+     * Releases a lease on the open zip file.
+     *
+     * @param lease the lease.
+     */
+    synchronized void release(Lease lease) {
+        lease.count--;
+        if (lease.count > 0) {
+            return;
+        }
+        if (lease != current) {
+            lease.close();
+        } else if (!keepOpen) {
+            retire();
+        }
+    }
+
+    /**
+     * Closes the zip file. Streams that are still open fail on their next read, the next lease reopens the zip file.
+     */
+    synchronized void close() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private void retire() {
+        if (current.count == 0) {
+            current.close();
+        }
+        current = null;
+    }
+
+    /**
+     * A lease on an open zip file.
+     */
+    static final class Lease {
+        private final ZipFile zipFile;
+        private final long lastModified;
+        private final long length;
+        private int count;
+
+        private Lease(File file) throws IOException {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.zipFile = new ZipFile(file);
+        }
+
+        ZipFile getZipFile() {
+            return zipFile;
+        }
+
+        private void close() {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -19,22 +19,47 @@ package org.jszip.pseudo.io;
 import org.codehaus.plexus.archiver.zip.ZipEntry;
 import org.codehaus.plexus.archiver.zip.ZipFile;
 import org.codehaus.plexus.util.IOUtil;
+import org.jszip.zip.ZipIndex;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
 public class ZipPseudoFile extends PseudoFile {
 
-    private final File zipFile;
-    private final ZipEntry entry;
+    /**
+     * Entries up to this size are read fully into memory, larger entries are streamed from the zip file.
+     */
+    private static final long BUFFER_THRESHOLD = Long.getLong("jszip.zip.bufferThreshold", 1024 * 1024);
+
+    private final ZipFilePool pool;
+    private final String name;
+    private final boolean directory;
+    private final long time;
+    private final long size;
 
     public ZipPseudoFile(PseudoFile parent, File zipFile, ZipEntry entry) {
+        this(parent, new ZipFilePool(zipFile, false), entry.getName(), entry.isDirectory(), entry.getTime(),
+                entry.getSize());
+    }
+
+    ZipPseudoFile(PseudoFile parent, ZipFilePool pool, ZipIndex index, int position) {
+        this(parent, pool, index.getName(position), index.isDirectory(position), index.getTime(position),
+                index.getSize(position));
+    }
+
+    private ZipPseudoFile(PseudoFile parent, ZipFilePool pool, String name, boolean directory, long time,
+                          long size) {
         super(parent);
-        this.zipFile = zipFile;
-        this.entry = entry;
+        this.pool = pool;
+        this.name = name;
+        this.directory = directory;
+        this.time = time;
+        this.size = size;
     }
 
     /**
@@ -82,7 +107,6 @@ public class ZipPseudoFile extends PseudoFile {
      * {@inheritDoc}
      */
     public String getName() {
-        final String name = entry.getName();
         int index = name.lastIndexOf('/');
         if (index == -1) {
             return name;
@@ -94,14 +118,14 @@ public class ZipPseudoFile extends PseudoFile {
      * {@inheritDoc}
      */
     public boolean isDirectory() {
-        return entry.isDirectory();
+        return directory;
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean isFile() {
-        return !entry.isDirectory();
+        return !directory;
     }
 
     /**
@@ -115,14 +139,14 @@ public class ZipPseudoFile extends PseudoFile {
      * {@inheritDoc}
      */
     public long lastModified() {
-        return entry.getTime();
+        return time;
     }
 
     /**
      * {@inheritDoc}
      */
     public long length() {
-        return entry.getSize();
+        return size;
     }
 
     /**
@@ -158,22 +182,44 @@ public class ZipPseudoFile extends PseudoFile {
      * {@inheritDoc}
      */
     InputStream $newInputStream() throws IOException {
+        final ZipFilePool.Lease lease = pool.acquire();
+        boolean release = true;
         InputStream inputStream = null;
-        ZipFile zipFile = null;
         try {
-            zipFile = new ZipFile(this.zipFile);
-            inputStream = zipFile.getInputStream(zipFile.getEntry(entry.getName()));
-            byte[] contents = IOUtil.toByteArray(inputStream);
-            return new ByteArrayInputStream(contents);
-        } finally {
-            if (zipFile != null) {
-                try {
-                    zipFile.close();
-                } catch (IOException e) {
-                    // ignore
-                }
+            ZipFile zipFile = lease.getZipFile();
+            ZipEntry entry = zipFile.getEntry(name);
+            if (entry == null) {
+                throw new FileNotFoundException(getPath());
+            }
+            inputStream = zipFile.getInputStream(entry);
+            long size = entry.getSize();
+            if (size >= 0 && size <= BUFFER_THRESHOLD) {
+                return new ByteArrayInputStream(IOUtil.toByteArray(inputStream));
             }
+            // large entries are streamed straight from the zip file, which stays leased until the stream is closed
+            InputStream result = new FilterInputStream(inputStream) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            pool.release(lease);
+                        }
+                    }
+                }
+            };
+            inputStream = null;
+            release = false;
+            return result;
+        } finally {
             IOUtil.close(inputStream);
+            if (release) {
+                pool.release(lease);
+            }
         }
     }
 
@@ -203,14 +203,14 @@ public class GlobalFunctions {
         proxy$java_io.put("FileWriter", global,
                 get(global, "Packages." + PseudoFileWriter.class.getName()));
         proxy$java.put("io", global, proxy$java_io);
-        global.defineProperty("java", proxy$java, ScriptableObject.DONTENUM);
+        ScriptableObject.defineProperty(scope, "java", proxy$java, ScriptableObject.DONTENUM);
         return scope;
     }
 
     public static Object get(Scriptable scope, String name) {
         Scriptable cur = scope;
         for (String part : StringUtils.split(name, ".")) {
-            Object next = cur.get(part, scope);
+            Object next = cur.get(part, cur);
             if (next instanceof Scriptable) {
                 cur = (Scriptable) next;
             } else {
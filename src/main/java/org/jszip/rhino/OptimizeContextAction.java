@@ -19,16 +19,12 @@ package org.jszip.rhino;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.FileUtils;
+import org.jszip.js.JavaScriptError;
+import org.jszip.js.JavaScriptRuntime;
+import org.jszip.js.JavaScriptScope;
 import org.jszip.pseudo.io.PseudoFile;
+import org.jszip.pseudo.io.PseudoFileFilter;
 import org.jszip.pseudo.io.PseudoFileSystem;
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.ContextAction;
-import org.mozilla.javascript.JavaScriptException;
-import org.mozilla.javascript.Script;
-import org.mozilla.javascript.Scriptable;
-import org.mozilla.javascript.ScriptableObject;
-import org.mozilla.javascript.UniqueTag;
-import org.mozilla.javascript.tools.shell.Global;
 
 import java.io.File;
 import java.io.IOException;
@@ -36,133 +32,122 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
 /**
  * An action for running r.js against a virtual filesystem.
  */
-public class OptimizeContextAction extends ScriptableObject implements ContextAction {
-    private final Global global;
+public class OptimizeContextAction {
+    private final JavaScriptRuntime runtime;
     private final File profileJs;
     private final String source;
     private final int lineNo;
     private final PseudoFileSystem.Layer[] layers;
     private final Log log;
+    private boolean skipMinification;
 
-    public OptimizeContextAction(Log log, Global global, File profileJs, String source, int lineNo,
+    public OptimizeContextAction(Log log, JavaScriptRuntime runtime, File profileJs, String source, int lineNo,
                                  PseudoFileSystem.Layer... layers) {
         this.log = log;
-        this.global = global;
+        this.runtime = runtime;
         this.profileJs = profileJs;
         this.source = source;
         this.lineNo = lineNo;
         this.layers = layers;
     }
 
-    public Object run(Context context) {
-        context.setErrorReporter(new MavenLogErrorReporter(log));
+    /**
+     * Sets whether r.js should leave the JavaScript unminified, for when it is minified afterwards by other means.
+     *
+     * @param skipMinification {@code true} to run r.js with {@code optimize=none}.
+     */
+    public void setSkipMinification(boolean skipMinification) {
+        this.skipMinification = skipMinification;
+    }
+
+    /**
+     * Runs r.js.
+     *
+     * @return the exit code of r.js.
+     * @throws JavaScriptError if r.js fails.
+     */
+    public int run() throws JavaScriptError {
         PseudoFileSystem fileSystem = new PseudoFileSystem(layers);
-        context.putThreadLocal(Log.class, log);
-        fileSystem.installInContext();
-        try {
 
-            if (log.isDebugEnabled()) {
-                log.debug("Virtual filesystem exposed to r.js:");
-                Stack<Iterator<PseudoFile>> stack = new Stack<Iterator<PseudoFile>>();
-                stack.push(Arrays.asList(fileSystem.root().listFiles()).iterator());
-                while (!stack.isEmpty()) {
-                    Iterator<PseudoFile> iterator = stack.pop();
-                    while (iterator.hasNext()) {
-                        PseudoFile f = iterator.next();
-                        if (f.isFile()) {
-                            log.debug("  " + f.getAbsolutePath() + " [file]");
-                        } else {
-                            log.debug("  " + f.getAbsolutePath() + " [dir]");
-                            stack.push(iterator);
-                            iterator = Arrays.asList(f.listFiles()).iterator();
-                        }
+        if (log.isDebugEnabled()) {
+            log.debug("Virtual filesystem exposed to r.js:");
+            Stack<Iterator<PseudoFile>> stack = new Stack<Iterator<PseudoFile>>();
+            stack.push(Arrays.asList(fileSystem.listChildren(fileSystem.root(), PseudoFileFilter.FILTER_NONE))
+                    .iterator());
+            while (!stack.isEmpty()) {
+                Iterator<PseudoFile> iterator = stack.pop();
+                while (iterator.hasNext()) {
+                    PseudoFile f = iterator.next();
+                    if (f.isFile()) {
+                        log.debug("  " + f.getAbsolutePath(fileSystem) + " [file]");
+                    } else {
+                        log.debug("  " + f.getAbsolutePath(fileSystem) + " [dir]");
+                        stack.push(iterator);
+                        iterator = Arrays.asList(fileSystem.listChildren(f, PseudoFileFilter.FILTER_NONE)).iterator();
                     }
                 }
             }
+        }
 
-            List<String> argsList = new ArrayList<String>();
-            argsList.add("-o");
-            argsList.add("/build/" + profileJs.getName());
-            String appDir = null;
-            String baseUrl = "./";
-            String dir = null;
-            try {
-                String profile = FileUtils.fileRead(profileJs, "UTF-8");
-                Scriptable scope = context.newObject(global);
-                scope.setPrototype(global);
-                scope.setParentScope(null);
-                Object parsedProfile = context.evaluateString(scope, profile, profileJs.getName(), 0, null);
-                if (parsedProfile instanceof Scriptable) {
-                    final Scriptable scriptable = (Scriptable) parsedProfile;
-                    appDir = getStringWithDefault(scriptable, "appDir", null);
-                    baseUrl = getStringWithDefault(scriptable, "baseUrl", "./");
-                    dir = getStringWithDefault(scriptable, "dir", null);
-                }
-            } catch (IOException e) {
-                log.debug("Cannot infer profile fixups", e);
-            } catch (JavaScriptException e) {
-                log.warn("JavaScript exception while parsing " + profileJs.getAbsolutePath() + ": " + e.details());
-            } catch (Throwable e) {
-                log.warn("Cannot infer if profile needs appDir and dir remapping to virtual directory structure", e);
-            }
-            if (appDir == null) {
-                argsList.add("appDir=/virtual/");
-                argsList.add("baseUrl=" + baseUrl);
-            } else if (!appDir.startsWith("/virtual/") && !appDir.equals("/virtual")) {
-                argsList.add("appDir=/virtual/" + StringUtils.removeEnd(StringUtils.removeStart(appDir, "/"),"/")+"/");
-                argsList.add("baseUrl=" + baseUrl);
-            }
-            if (dir == null) {
-                argsList.add("dir=/target/");
-            } else if (!dir.startsWith("/target/") && !dir.equals("/target")) {
-                argsList.add("dir=/target/" + StringUtils.removeEnd(StringUtils.removeStart(dir, "/"),"/")+"/");
+        List<String> argsList = new ArrayList<String>();
+        argsList.add("-o");
+        argsList.add("/build/" + profileJs.getName());
+        String appDir = null;
+        String baseUrl = "./";
+        String dir = null;
+        try {
+            String profile = FileUtils.fileRead(profileJs, "UTF-8");
+            Object parsedProfile = runtime.newScope(fileSystem, false, log).execute(profile, profileJs.getName(), 0);
+            if (parsedProfile instanceof Map) {
+                final Map<?, ?> map = (Map<?, ?>) parsedProfile;
+                appDir = getStringWithDefault(map, "appDir", null);
+                baseUrl = getStringWithDefault(map, "baseUrl", "./");
+                dir = getStringWithDefault(map, "dir", null);
             }
+        } catch (IOException e) {
+            log.debug("Cannot infer profile fixups", e);
+        } catch (JavaScriptError e) {
+            log.warn("JavaScript exception while parsing " + profileJs.getAbsolutePath() + ": " + e.getMessage());
+        } catch (Throwable e) {
+            log.warn("Cannot infer if profile needs appDir and dir remapping to virtual directory structure", e);
+        }
+        if (appDir == null) {
+            argsList.add("appDir=/virtual/");
+            argsList.add("baseUrl=" + baseUrl);
+        } else if (!appDir.startsWith("/virtual/") && !appDir.equals("/virtual")) {
+            argsList.add("appDir=/virtual/" + StringUtils.removeEnd(StringUtils.removeStart(appDir, "/"),"/")+"/");
+            argsList.add("baseUrl=" + baseUrl);
+        }
+        if (dir == null) {
+            argsList.add("dir=/target/");
+        } else if (!dir.startsWith("/target/") && !dir.equals("/target")) {
+            argsList.add("dir=/target/" + StringUtils.removeEnd(StringUtils.removeStart(dir, "/"),"/")+"/");
+        }
+        if (skipMinification) {
+            argsList.add("optimize=none");
+        }
 
-            global.defineFunctionProperties(new String[]{"print", "quit"}, GlobalFunctions.class,
-                    ScriptableObject.DONTENUM);
-
-            Script script = context.compileString(source, "r.js", lineNo, null);
-            script.getClass();
-
-            Scriptable argsObj = context.newArray(global, argsList.toArray());
-            global.defineProperty("arguments", argsObj, ScriptableObject.DONTENUM);
-
-            Scriptable scope = GlobalFunctions.createPseudoFileSystemScope(global, context);
+        JavaScriptScope scope = runtime.newScope(fileSystem, false, log);
+        scope.define("arguments", argsList);
 
-            log.info("Applying r.js profile " + profileJs.getPath());
-            log.debug("Executing r.js with arguments: " + StringUtils.join(argsList, " "));
-            GlobalFunctions.setExitCode(0);
-            script.exec(context, scope);
-            return GlobalFunctions.getExitCode();
-        } finally {
-            fileSystem.removeFromContext();
-            context.putThreadLocal(OptimizeContextAction.class, null);
-        }
+        log.info("Applying r.js profile " + profileJs.getPath());
+        log.debug("Executing r.js with arguments: " + StringUtils.join(argsList, " "));
+        scope.execute(source, "r.js", lineNo);
+        return scope.getExitCode();
     }
 
-    private String getStringWithDefault(Scriptable scriptable, String name, String defaultValue) {
-        final Object object = scriptable.get(name, scriptable);
-        if (object instanceof String) {
-            return (String) object;
-        }
-        if (object instanceof UniqueTag) {
-            if (object == UniqueTag.NULL_VALUE) {
-                return null;
-            }
+    private String getStringWithDefault(Map<?, ?> map, String name, String defaultValue) {
+        if (!map.containsKey(name)) {
             return defaultValue;
-        } else {
-            return object.toString();
         }
-    }
-
-    @Override
-    public String getClassName() {
-        return "global";
+        final Object object = map.get(name);
+        return object == null ? null : object.toString();
     }
 
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jszip.rhino;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jszip.js.JavaScriptRuntime;
+import org.jszip.js.JavaScriptScope;
+import org.jszip.pseudo.io.PseudoFileSystem;
+import org.mozilla.javascript.tools.shell.ShellContextFactory;
+
+import java.io.File;
+
+/**
+ * The Rhino {@link JavaScriptRuntime}, the default. Scopes inherit from the {@link SharedGlobal}.
+ */
+public class RhinoRuntime implements JavaScriptRuntime {
+
+    /**
+     * The name of this runtime.
+     */
+    public static final String NAME = "rhino";
+
+    private final ShellContextFactory contextFactory;
+
+    private final File classCache;
+
+    public RhinoRuntime() {
+        this(0, null);
+    }
+
+    /**
+     * Creates a Rhino runtime.
+     *
+     * @param optimizationLevel the optimization level to compile scripts with, from {@code -1} (interpreted) to
+     *                          {@code 9}.
+     * @param classCache        the directory to keep scripts compiled to Java classes in between builds or
+     *                          {@code null}.
+     */
+    public RhinoRuntime(int optimizationLevel, File classCache) {
+        this.contextFactory = new ShellContextFactory();
+        this.contextFactory.setOptimizationLevel(optimizationLevel);
+        this.classCache = classCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public JavaScriptScope newScope(PseudoFileSystem fs, boolean pseudoReadFile, Log log) {
+        return new RhinoScope(contextFactory, classCache, fs, pseudoReadFile, log);
+    }
+}
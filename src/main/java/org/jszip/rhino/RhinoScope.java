@@ -0,0 +1,203 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jszip.rhino;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jszip.js.JavaScriptError;
+import org.jszip.js.JavaScriptScope;
+import org.jszip.pseudo.io.PseudoFileSystem;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link JavaScriptScope} of the {@link RhinoRuntime}.
+ */
+class RhinoScope implements JavaScriptScope {
+
+    private final ContextFactory contextFactory;
+
+    private final File classCache;
+
+    private final PseudoFileSystem fs;
+
+    private final Log log;
+
+    private final ScriptableObject scope;
+
+    private volatile int exitCode;
+
+    RhinoScope(ContextFactory contextFactory, File classCache, PseudoFileSystem fs, boolean pseudoReadFile, Log log) {
+        this.contextFactory = contextFactory;
+        this.classCache = classCache;
+        this.fs = fs;
+        this.log = log;
+        final Context context = enter();
+        try {
+            scope = SharedGlobal.newScope(context);
+            if (pseudoReadFile) {
+                // otherwise the shell's readFile, which reads from the real file system, is inherited
+                scope.defineFunctionProperties(new String[]{"readFile"}, GlobalFunctions.class,
+                        ScriptableObject.DONTENUM);
+            }
+            scope.defineProperty("arguments", context.newArray(scope, 0), ScriptableObject.DONTENUM);
+        } finally {
+            exit(context);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void define(String name, Object value) {
+        final Context context = enter();
+        try {
+            scope.defineProperty(name, toJavaScript(context, value), ScriptableObject.DONTENUM);
+        } finally {
+            exit(context);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object execute(String source, String sourceName, int lineNo) throws JavaScriptError {
+        final Context context = enter();
+        try {
+            GlobalFunctions.setExitCode(0);
+            Object result = SharedGlobal.compile(context, source, sourceName, lineNo, classCache, log)
+                    .exec(context, scope);
+            exitCode = exitCode();
+            return toJava(result, true);
+        } catch (RhinoException e) {
+            throw toError(e);
+        } finally {
+            exit(context);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object call(String functionName, Object... args) throws JavaScriptError {
+        final Context context = enter();
+        try {
+            Object function = ScriptableObject.getProperty(scope, functionName);
+            if (!(function instanceof Function)) {
+                throw new JavaScriptError(functionName + " is not a function", -1, -1, null);
+            }
+            Object[] jsArgs = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                jsArgs[i] = toJavaScript(context, args[i]);
+            }
+            GlobalFunctions.setExitCode(0);
+            Object result = ((Function) function).call(context, scope, scope, jsArgs);
+            exitCode = exitCode();
+            return toJava(result, true);
+        } catch (RhinoException e) {
+            throw toError(e);
+        } finally {
+            exit(context);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private Context enter() {
+        final Context context = contextFactory.enterContext();
+        context.setErrorReporter(new MavenLogErrorReporter(log));
+        context.putThreadLocal(Log.class, log);
+        fs.installInContext();
+        return context;
+    }
+
+    private void exit(Context context) {
+        fs.removeFromContext();
+        context.putThreadLocal(Log.class, null);
+        Context.exit();
+    }
+
+    private static int exitCode() {
+        Integer exitCode = GlobalFunctions.getExitCode();
+        return exitCode == null ? 0 : exitCode;
+    }
+
+    private Object toJavaScript(Context context, Object value) {
+        if (value instanceof Collection) {
+            value = ((Collection<?>) value).toArray();
+        }
+        if (value instanceof Object[]) {
+            Object[] values = ((Object[]) value).clone();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toJavaScript(context, values[i]);
+            }
+            return context.newArray(scope, values);
+        }
+        return value;
+    }
+
+    /**
+     * Converts a JavaScript value to Java, objects only one level deep.
+     */
+    private static Object toJava(Object value, boolean deep) {
+        if (value == null || value instanceof Undefined || value == Scriptable.NOT_FOUND) {
+            return null;
+        }
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (deep && value instanceof Scriptable && !(value instanceof Function)) {
+            Scriptable object = (Scriptable) value;
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            for (Object id : object.getIds()) {
+                if (id instanceof String) {
+                    Object property = object.get((String) id, object);
+                    if (!(property instanceof Undefined)) {
+                        result.put((String) id, toJava(property, false));
+                    }
+                }
+            }
+            return result;
+        }
+        return Context.toString(value);
+    }
+
+    private static JavaScriptError toError(RhinoException e) {
+        if (e instanceof JavaScriptException && ((JavaScriptException) e).getValue() instanceof Scriptable) {
+            Scriptable jse = (Scriptable) ((JavaScriptException) e).getValue();
+            int line = jse.has("line", jse) ? ((Number) jse.get("line", jse)).intValue() : -1;
+            int col = jse.has("col", jse) ? ((Number) jse.get("col", jse)).intValue() : -1;
+            return new JavaScriptError(e.getMessage(), line, col, e);
+        }
+        return new JavaScriptError(e.getMessage(), e.lineNumber() > 0 ? e.lineNumber() : -1,
+                e.columnNumber() > 0 ? e.columnNumber() : -1, e);
+    }
+}
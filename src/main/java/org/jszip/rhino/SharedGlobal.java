@@ -0,0 +1,311 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.rhino;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.tools.shell.Global;
+import org.mozilla.javascript.tools.shell.QuitAction;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+import org.mozilla.javascript.tools.shell.ShellContextFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The shell {@link Global} shared by all the JavaScript engines in the JVM. It is initialized once, with the standard
+ * objects and the {@link GlobalFunctions} logging functions, and then sealed so that it can be shared safely. Each
+ * engine works in its own {@link #newScope(Context)}, which inherits from the global through its prototype, so that
+ * the variables defined by the scripts never leak into the global. Only the global object itself is sealed, the
+ * standard objects are not, as build profiles and plugins may extend the built-in prototypes; such extensions are
+ * seen by every engine.
+ */
+public final class SharedGlobal {
+
+    /**
+     * The maximum number of compiled scripts to keep.
+     */
+    private static final int SCRIPT_CACHE_SIZE = Integer.getInteger("jszip.rhino.scriptCacheSize", 16);
+
+    private static Global global;
+
+    /**
+     * The compiled scripts, keyed by the hash of their name, compiler settings and source, least recently used first.
+     */
+    private static final Map<String, Script> scripts = new LinkedHashMap<String, Script>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Script> eldest) {
+            return size() > SCRIPT_CACHE_SIZE;
+        }
+    };
+
+    private SharedGlobal() {
+    }
+
+    /**
+     * Returns the shared global, initializing it on first use.
+     *
+     * @return the sealed global.
+     */
+    public static synchronized Global get() {
+        if (global == null) {
+            Global global = new Global();
+            global.initQuitAction(new QuitAction() {
+                public void quit(Context context, int exitCode) {
+                    if (exitCode != 0) {
+                        throw new JavaScriptTerminationException("Script exited with exit code of " + exitCode,
+                                exitCode);
+                    }
+                }
+            });
+            global.init(new ShellContextFactory());
+            global.defineFunctionProperties(new String[]{"print", "debug", "warn", "quit"}, GlobalFunctions.class,
+                    ScriptableObject.DONTENUM);
+            // resolve the lazily loaded constructors now, as they cannot be replaced once the global is sealed
+            for (Object id : global.getAllIds()) {
+                if (id instanceof String) {
+                    global.get((String) id, global);
+                }
+            }
+            global.sealObject();
+            SharedGlobal.global = global;
+        }
+        return global;
+    }
+
+    /**
+     * Creates a scope for an engine, with {@code java.io} redirected to the pseudo file system.
+     *
+     * @param context the current context.
+     * @return a new top level scope inheriting from the shared global.
+     */
+    public static ScriptableObject newScope(Context context) {
+        return (ScriptableObject) GlobalFunctions.createPseudoFileSystemScope(get(), context);
+    }
+
+    /**
+     * Compiles a script, reusing the result of a previous compilation of the same source at the same optimization
+     * level. Compiled scripts do not hold on to any scope, so they can be executed in any number of scopes.
+     *
+     * @param context    the current context.
+     * @param source     the source of the script.
+     * @param sourceName the name of the script, for error messages.
+     * @param lineNo     the line number of the start of the source.
+     * @return the compiled script.
+     */
+    public static Script compile(Context context, String source, String sourceName, int lineNo) {
+        return compile(context, source, sourceName, lineNo, null, null);
+    }
+
+    /**
+     * Compiles a script, reusing the result of a previous compilation of the same source with the same compiler
+     * settings, either from memory or, when the script is compiled to Java classes, from the class files saved in a
+     * cache directory by an earlier build. Scripts that cannot be compiled to Java classes, e.g. because a function
+     * is too large for a Java method, are interpreted instead.
+     *
+     * @param context    the current context.
+     * @param source     the source of the script.
+     * @param sourceName the name of the script, for error messages.
+     * @param lineNo     the line number of the start of the source.
+     * @param classCache the directory holding the class files of compiled scripts or {@code null} to keep them in
+     *                   memory only. The classes found there are loaded into the build, so it must only be
+     *                   writable by trusted builds.
+     * @param log        the log or {@code null}.
+     * @return the compiled script.
+     */
+    public static Script compile(Context context, String source, String sourceName, int lineNo, File classCache,
+                                 Log log) {
+        int optimizationLevel = context.getOptimizationLevel();
+        CompilerEnvirons compilerEnv = new CompilerEnvirons();
+        compilerEnv.initFromContext(context);
+        String hash = hash(sourceName + ':' + lineNo + ':' + context.getImplementationVersion() + ':'
+                + settings(compilerEnv) + ':' + source);
+        synchronized (scripts) {
+            Script script = scripts.get(hash);
+            if (script != null) {
+                return script;
+            }
+        }
+        Script script = null;
+        if (optimizationLevel >= 0) {
+            File cacheFile = classCache == null ? null : new File(classCache, hash + ".bin");
+            String mainClassName = "org.jszip.rhino.generated.Script" + hash;
+            if (cacheFile != null && cacheFile.isFile()) {
+                try {
+                    script = loadScript(context, mainClassName, readClasses(cacheFile));
+                    if (log != null) {
+                        log.debug("Loaded compiled " + sourceName + " from " + cacheFile);
+                    }
+                } catch (Exception e) {
+                    if (log != null) {
+                        log.debug("Could not load compiled " + sourceName + " from " + cacheFile, e);
+                    }
+                }
+            }
+            if (script == null) {
+                try {
+                    Object[] classes = new ClassCompiler(compilerEnv)
+                            .compileToClassFiles(source, sourceName, lineNo, mainClassName);
+                    script = loadScript(context, mainClassName, classes);
+                    if (cacheFile != null) {
+                        try {
+                            writeClasses(cacheFile, classes);
+                        } catch (IOException e) {
+                            if (log != null) {
+                                log.debug("Could not save compiled " + sourceName + " to " + cacheFile, e);
+                            }
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    if (log != null) {
+                        log.debug("Could not compile " + sourceName + " at optimization level " + optimizationLevel
+                                + ", falling back to interpreted mode", e);
+                    }
+                }
+            }
+        }
+        if (script == null) {
+            context.setOptimizationLevel(-1);
+            try {
+                script = context.compileString(source, sourceName, lineNo, null);
+            } finally {
+                context.setOptimizationLevel(optimizationLevel);
+            }
+        }
+        synchronized (scripts) {
+            scripts.put(hash, script);
+        }
+        return script;
+    }
+
+    /**
+     * Forgets the scripts compiled so far, so that the next compilations are loaded from the class cache or compiled
+     * again.
+     */
+    static void clearScripts() {
+        synchronized (scripts) {
+            scripts.clear();
+        }
+    }
+
+    /**
+     * Returns the compiler settings that the generated classes depend on.
+     */
+    private static String settings(CompilerEnvirons compilerEnv) {
+        return compilerEnv.getOptimizationLevel() + ":" + compilerEnv.getLanguageVersion() + ":"
+                + compilerEnv.isGenerateDebugInfo() + ":" + compilerEnv.isGeneratingSource() + ":"
+                + compilerEnv.isStrictMode() + ":" + compilerEnv.isXmlAvailable() + ":"
+                + compilerEnv.isReservedKeywordAsIdentifier() + ":" + compilerEnv.isAllowMemberExprAsFunctionName()
+                + ":" + compilerEnv.reportWarningAsError() + ":" + compilerEnv.isGenerateObserverCount() + ":"
+                + compilerEnv.getActivationNames();
+    }
+
+    private static Script loadScript(Context context, String mainClassName, Object[] classes) {
+        GeneratedClassLoader loader = context.createClassLoader(Context.class.getClassLoader());
+        Class<?> mainClass = null;
+        for (int i = 0; i < classes.length; i += 2) {
+            Class<?> c = loader.defineClass((String) classes[i], (byte[]) classes[i + 1]);
+            if (mainClassName.equals(classes[i])) {
+                mainClass = c;
+            }
+        }
+        if (mainClass == null) {
+            throw new IllegalStateException("No class named " + mainClassName);
+        }
+        loader.linkClass(mainClass);
+        try {
+            return (Script) mainClass.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static Object[] readClasses(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            Object[] classes = new Object[in.readInt() * 2];
+            for (int i = 0; i < classes.length; i += 2) {
+                classes[i] = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                classes[i + 1] = bytes;
+            }
+            return classes;
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    private static void writeClasses(File file, Object[] classes) throws IOException {
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + file.getParentFile());
+        }
+        // write to a temporary file first so that concurrent builds never see a partial file
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(classes.length / 2);
+            for (int i = 0; i < classes.length; i += 2) {
+                out.writeUTF((String) classes[i]);
+                byte[] bytes = (byte[]) classes[i + 1];
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } finally {
+            IOUtil.close(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private static String hash(String value) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported", e);
+        }
+        StringBuilder result = new StringBuilder();
+        try {
+            for (byte b : digest.digest(value.getBytes("UTF-8"))) {
+                result.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.zip;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Creates zip files with the entries deflated in parallel by a pool of threads, and then written in order.
+ * The output is byte-for-byte reproducible: entries are written in name order, every entry has the same timestamp,
+ * and the permissions are fixed. The timestamp is recorded as UTC, so the output is the same whatever the time zone
+ * of the machine, and tools that read zip times as local times show it shifted by their offset. Entries whose type
+ * is already compressed (images, fonts, archives) are stored rather than deflated again.
+ * <p/>
+ * Where the same name is added more than once, the first addition wins. Parent directory entries are added
+ * automatically. The first entry is always the {@link ZipIndex#INDEX_ENTRY}.
+ */
+public class ParallelZipArchiver {
+
+    /**
+     * The earliest time that can be represented in a zip file, 1980-01-01T00:00:00Z.
+     */
+    public static final long DOS_EPOCH = 315532800000L;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * The extensions of the file types that are stored without compression by default.
+     */
+    public static final Set<String> DEFAULT_STORED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(
+            Arrays.asList("png", "jpg", "jpeg", "gif", "webp", "ico", "woff", "woff2", "eot", "gz", "tgz", "bz2",
+                    "xz", "zip", "jar", "mp3", "mp4", "ogg", "webm")));
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int UTF8_NAMES = 0x0800;
+    private static final int MADE_BY_UNIX = 3 << 8;
+    private static final int FILE_MODE = 0100644;
+    private static final int DIRECTORY_MODE = 040755;
+    private static final long MAX_32 = 0xffffffffL;
+    private static final int MAX_16 = 0xffff;
+
+    /**
+     * The entries keyed by name, which keeps them in name order. Directory entries have a {@code null} source.
+     */
+    private final Map<String, Source> entries = new TreeMap<String, Source>();
+
+    private Set<String> storedExtensions = DEFAULT_STORED_EXTENSIONS;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private long timestamp = DOS_EPOCH;
+
+    private boolean includeEmptyDirs;
+
+    public void setThreads(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Sets the timestamp given to every entry.
+     *
+     * @param timestamp the timestamp in milliseconds since the epoch, times before {@link #DOS_EPOCH} are clamped.
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = Math.max(DOS_EPOCH, timestamp);
+    }
+
+    public void setStoredExtensions(Set<String> storedExtensions) {
+        this.storedExtensions = storedExtensions;
+    }
+
+    /**
+     * Sets whether {@link #addDirectory(File)} adds entries for empty directories.
+     *
+     * @param includeEmptyDirs {@code true} to add entries for empty directories.
+     */
+    public void setIncludeEmptyDirs(boolean includeEmptyDirs) {
+        this.includeEmptyDirs = includeEmptyDirs;
+    }
+
+    /**
+     * Adds a file.
+     *
+     * @param file the file.
+     * @param name the name of the entry.
+     */
+    public void addFile(final File file, String name) {
+        addEntry(name, new Source() {
+            public byte[] read() throws IOException {
+                InputStream inputStream = new FileInputStream(file);
+                try {
+                    return IOUtil.toByteArray(inputStream);
+                } finally {
+                    IOUtil.close(inputStream);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds generated content.
+     *
+     * @param bytes the content.
+     * @param name  the name of the entry.
+     */
+    public void addBytes(final byte[] bytes, String name) {
+        addEntry(name, new Source() {
+            public byte[] read() throws IOException {
+                return bytes;
+            }
+        });
+    }
+
+    /**
+     * Adds the contents of a directory, excluding the {@link DirectoryScanner#DEFAULTEXCLUDES}.
+     *
+     * @param directory the directory.
+     */
+    public void addDirectory(File directory) {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(directory);
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        for (String name : scanner.getIncludedFiles()) {
+            addFile(new File(directory, name), name);
+        }
+        if (includeEmptyDirs) {
+            for (String name : scanner.getIncludedDirectories()) {
+                if (name.length() > 0) {
+                    addEntry(name + "/", null);
+                }
+            }
+        }
+    }
+
+    private void addEntry(String name, Source source) {
+        name = name.replace('\\', '/');
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        if (name.length() == 0 || entries.containsKey(name)) {
+            return;
+        }
+        entries.put(name, source);
+        int index = name.lastIndexOf('/', name.endsWith("/") ? name.length() - 2 : name.length());
+        while (index > 0) {
+            String parent = name.substring(0, index + 1);
+            if (entries.containsKey(parent)) {
+                break;
+            }
+            entries.put(parent, null);
+            index = name.lastIndexOf('/', index - 1);
+        }
+    }
+
+    /**
+     * Writes the zip file.
+     *
+     * @param destFile the zip file.
+     * @throws IOException if the zip file could not be written.
+     */
+    public void createArchive(File destFile) throws IOException {
+        entries.remove(ZipIndex.INDEX_ENTRY);
+        // the index is an entry too
+        if (entries.size() + 1 > MAX_16) {
+            throw new IOException(
+                    "Too many entries for " + destFile + ", at most " + (MAX_16 - 1) + " are supported");
+        }
+        destFile.getAbsoluteFile().getParentFile().mkdirs();
+        int dosTime = toDosTime(timestamp);
+
+        // the index is the first entry, so that it can be read without the central directory. It is only complete
+        // once all the entries are written, but its length only depends on the names, so its space is reserved
+        // up front and filled in at the end.
+        List<String> indexed = new ArrayList<String>(entries.size());
+        for (String name : entries.keySet()) {
+            if (!name.startsWith(ZipIndex.RESERVED_PREFIX)) {
+                indexed.add(name);
+            }
+        }
+        String[] names = indexed.toArray(new String[indexed.size()]);
+        long[] offsets = new long[names.length];
+        long[] sizes = new long[names.length];
+        long[] crcs = new long[names.length];
+        long[] times = new long[names.length];
+        Arrays.fill(times, timestamp);
+        int indexLength = new ZipIndex(names, offsets, sizes, crcs, times).toByteArray().length;
+
+        List<byte[]> centralDirectory = new ArrayList<byte[]>(entries.size() + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(destFile), 65536);
+        try {
+            byte[] indexHeader = new Compressed(ZipIndex.INDEX_ENTRY, false, STORED, 0, indexLength,
+                    new byte[indexLength]).header(LOCAL_FILE_HEADER, dosTime, 0);
+            outputStream.write(indexHeader);
+            outputStream.write(new byte[indexLength]);
+            long offset = indexHeader.length + indexLength;
+            int position = 0;
+            LinkedList<Future<Compressed>> pending = new LinkedList<Future<Compressed>>();
+            Iterator<Map.Entry<String, Source>> iterator = entries.entrySet().iterator();
+            int window = threads * 4;
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                while (iterator.hasNext() && pending.size() < window) {
+                    Map.Entry<String, Source> entry = iterator.next();
+                    pending.add(executor.submit(new Compress(entry.getKey(), entry.getValue())));
+                }
+                Compressed compressed = get(pending.removeFirst());
+                if (offset > MAX_32) {
+                    throw new IOException(destFile + " is too large, at most 4GB is supported");
+                }
+                if (position < names.length && names[position].equals(compressed.getName())) {
+                    offsets[position] = offset;
+                    sizes[position] = compressed.size;
+                    crcs[position] = compressed.crc;
+                    position++;
+                }
+                byte[] header = compressed.header(LOCAL_FILE_HEADER, dosTime, offset);
+                outputStream.write(header);
+                outputStream.write(compressed.data);
+                centralDirectory.add(compressed.header(CENTRAL_FILE_HEADER, dosTime, offset));
+                offset += header.length + compressed.data.length;
+            }
+            byte[] index = new ZipIndex(names, offsets, sizes, crcs, times).toByteArray();
+            CRC32 indexCrc = new CRC32();
+            indexCrc.update(index);
+            Compressed indexEntry =
+                    new Compressed(ZipIndex.INDEX_ENTRY, false, STORED, indexCrc.getValue(), index.length, index);
+            centralDirectory.add(0, indexEntry.header(CENTRAL_FILE_HEADER, dosTime, 0));
+            long size = 0;
+            for (byte[] header : centralDirectory) {
+                outputStream.write(header);
+                size += header.length;
+            }
+            if (offset > MAX_32) {
+                throw new IOException(destFile + " is too large, at most 4GB is supported");
+            }
+            HeaderBuilder end = new HeaderBuilder();
+            end.writeInt(END_OF_CENTRAL_DIRECTORY);
+            end.writeShort(0);
+            end.writeShort(0);
+            end.writeShort(centralDirectory.size());
+            end.writeShort(centralDirectory.size());
+            end.writeInt(size);
+            end.writeInt(offset);
+            end.writeShort(0);
+            outputStream.write(end.toByteArray());
+            outputStream.close();
+            outputStream = null;
+
+            RandomAccessFile file = new RandomAccessFile(destFile, "rw");
+            try {
+                file.write(indexEntry.header(LOCAL_FILE_HEADER, dosTime, 0));
+                file.write(index);
+            } finally {
+                file.close();
+            }
+        } finally {
+            IOUtil.close(outputStream);
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while creating zip file");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw (IOException) new IOException(cause.getMessage()).initCause(cause);
+        }
+    }
+
+    private static int toDosTime(long time) {
+        // zip times have no time zone, use UTC rather than the local time zone to keep the output reproducible
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return 0x00210000;
+        }
+        return ((year - 1980) << 25)
+                | ((calendar.get(Calendar.MONTH) + 1) << 21)
+                | (calendar.get(Calendar.DAY_OF_MONTH) << 16)
+                | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+                | (calendar.get(Calendar.MINUTE) << 5)
+                | (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    /**
+     * The content of an entry.
+     */
+    private interface Source {
+        byte[] read() throws IOException;
+    }
+
+    /**
+     * Reads and, where worthwhile, deflates the content of an entry.
+     */
+    private class Compress implements Callable<Compressed> {
+        private final String name;
+        private final Source source;
+
+        private Compress(String name, Source source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        public Compressed call() throws IOException {
+            if (source == null) {
+                return new Compressed(name, true, STORED, 0, 0, new byte[0]);
+            }
+            byte[] data = source.read();
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            String extension = FileUtils.getExtension(name).toLowerCase();
+            if (data.length > 0 && !storedExtensions.contains(extension)) {
+                Deflater deflater = new Deflater(level, true);
+                try {
+                    deflater.setInput(data);
+                    deflater.finish();
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+                    byte[] buffer = new byte[8192];
+                    while (!deflater.finished()) {
+                        int count = deflater.deflate(buffer);
+                        bos.write(buffer, 0, count);
+                    }
+                    if (bos.size() < data.length) {
+                        return new Compressed(name, false, DEFLATED, crc.getValue(), data.length, bos.toByteArray());
+                    }
+                } finally {
+                    deflater.end();
+                }
+            }
+            return new Compressed(name, false, STORED, crc.getValue(), data.length, data);
+        }
+    }
+
+    /**
+     * An entry ready to be written.
+     */
+    private static class Compressed {
+        private final byte[] name;
+        private final boolean directory;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+
+        private Compressed(String name, boolean directory, int method, long crc, long size, byte[] data)
+                throws IOException {
+            if (size > MAX_32) {
+                throw new IOException(name + " is too large, at most 4GB is supported");
+            }
+            this.name = name.getBytes("UTF-8");
+            this.directory = directory;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+
+        private String getName() throws UnsupportedEncodingException {
+            return new String(name, "UTF-8");
+        }
+
+        private byte[] header(int signature, int dosTime, long offset) {
+            boolean central = signature == CENTRAL_FILE_HEADER;
+            HeaderBuilder header = new HeaderBuilder();
+            header.writeInt(signature);
+            if (central) {
+                header.writeShort(MADE_BY_UNIX | 20);
+            }
+            header.writeShort(method == DEFLATED || directory ? 20 : 10);
+            header.writeShort(UTF8_NAMES);
+            header.writeShort(method);
+            header.writeInt(dosTime & 0xffffffffL);
+            header.writeInt(crc);
+            header.writeInt(data.length);
+            header.writeInt(size);
+            header.writeShort(name.length);
+            header.writeShort(0);
+            if (central) {
+                header.writeShort(0);
+                header.writeShort(0);
+                header.writeShort(0);
+                // unix permissions in the high word, and the MS-DOS directory attribute for directories
+                header.writeInt(directory ? ((long) DIRECTORY_MODE << 16) | 0x10 : (long) FILE_MODE << 16);
+                header.writeInt(offset);
+            }
+            header.write(name, 0, name.length);
+            return header.toByteArray();
+        }
+    }
+
+    /**
+     * Builds little endian headers.
+     */
+    private static class HeaderBuilder extends ByteArrayOutputStream {
+        private void writeShort(int value) {
+            write(value & 0xff);
+            write((value >>> 8) & 0xff);
+        }
+
+        private void writeInt(long value) {
+            write((int) (value & 0xff));
+            write((int) ((value >>> 8) & 0xff));
+            write((int) ((value >>> 16) & 0xff));
+            write((int) ((value >>> 24) & 0xff));
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2011-2012 Stephen Connolly.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jszip.zip;
+
+import org.codehaus.plexus.archiver.zip.ZipEntry;
+import org.codehaus.plexus.archiver.zip.ZipFile;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An immutable index of the entries of a zip file, sorted by name so that entries and directory listings can be
+ * found by binary search.
+ * <p/>
+ * Zip files written by {@link ParallelZipArchiver} start with a {@link #INDEX_ENTRY} holding the index, which is
+ * loaded with a single read. For any other zip file the index is built from the central directory.
+ * Entries under {@code META-INF/jszip/} are not part of the index.
+ */
+public final class ZipIndex {
+
+    /**
+     * The name of the entry holding the index.
+     */
+    public static final String INDEX_ENTRY = "META-INF/jszip/index.bin";
+
+    /**
+     * The names of the entries reserved for jszip's own use.
+     */
+    static final String RESERVED_PREFIX = "META-INF/jszip/";
+
+    private static final int MAGIC = 0x4a535a49;
+
+    private static final int VERSION = 1;
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+
+    /**
+     * The maximum number of indexes kept by {@link #cached(File)}.
+     */
+    private static final int CACHE_SIZE = Integer.getInteger("jszip.zip.indexCacheSize", 256);
+
+    /**
+     * The indexes read by {@link #cached(File)} in access order, keyed by the zip file's absolute path.
+     */
+    private static final Map<String, CacheEntry> cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String[] names;
+    private final long[] offsets;
+    private final long[] sizes;
+    private final long[] crcs;
+    private final long[] times;
+
+    ZipIndex(String[] names, long[] offsets, long[] sizes, long[] crcs, long[] times) {
+        this.names = names;
+        this.offsets = offsets;
+        this.sizes = sizes;
+        this.crcs = crcs;
+        this.times = times;
+    }
+
+    /**
+     * Reads the index of a zip file.
+     *
+     * @param zipFile the zip file.
+     * @return the index.
+     * @throws IOException if the zip file could not be read.
+     */
+    public static ZipIndex read(File zipFile) throws IOException {
+        ZipIndex index = readIndexEntry(zipFile);
+        return index != null ? index : readCentralDirectory(zipFile);
+    }
+
+    /**
+     * Returns the index of a zip file, reusing the index read by a previous call as long as the zip file has the
+     * same size and timestamp. As indexes are immutable they are shared by every mojo execution in the JVM, so
+     * each jszip artifact is only indexed once per build rather than once per mojo and module.
+     *
+     * @param zipFile the zip file.
+     * @return the index.
+     * @throws IOException if the zip file could not be read.
+     */
+    public static ZipIndex cached(File zipFile) throws IOException {
+        String key = zipFile.getAbsolutePath();
+        long length = zipFile.length();
+        long lastModified = zipFile.lastModified();
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                return entry.index;
+            }
+        }
+        // read outside the lock, at worst two threads index the same zip file
+        ZipIndex index = read(zipFile);
+        synchronized (cache) {
+            cache.put(key, new CacheEntry(length, lastModified, index));
+        }
+        return index;
+    }
+
+    /**
+     * Reads the {@link #INDEX_ENTRY} if it is the first entry, stored and intact.
+     *
+     * @param zipFile the zip file.
+     * @return the index or {@code null} if the zip file does not start with an index.
+     * @throws IOException if the zip file could not be read.
+     */
+    private static ZipIndex readIndexEntry(File zipFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(zipFile, "r");
+        try {
+            byte[] expectedName = INDEX_ENTRY.getBytes("UTF-8");
+            byte[] header = new byte[LOCAL_FILE_HEADER_LENGTH + expectedName.length];
+            if (file.length() < header.length) {
+                return null;
+            }
+            file.readFully(header);
+            if (readInt(header, 0) != LOCAL_FILE_HEADER || readShort(header, 8) != 0
+                    || readShort(header, 26) != expectedName.length) {
+                return null;
+            }
+            for (int i = 0; i < expectedName.length; i++) {
+                if (header[LOCAL_FILE_HEADER_LENGTH + i] != expectedName[i]) {
+                    return null;
+                }
+            }
+            long size = readInt(header, 18) & 0xffffffffL;
+            if (size != (readInt(header, 22) & 0xffffffffL) || size > file.length()) {
+                return null;
+            }
+            file.skipBytes(readShort(header, 28));
+            byte[] data = new byte[(int) size];
+            file.readFully(data);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if (crc.getValue() != (readInt(header, 14) & 0xffffffffL)) {
+                return null;
+            }
+            return parse(data);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static ZipIndex readCentralDirectory(File zipFile) throws IOException {
+        ZipFile file = new ZipFile(zipFile);
+        try {
+            List<ZipEntry> entries = new ArrayList<ZipEntry>();
+            Enumeration<ZipEntry> enumeration = file.getEntries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                String name = entry.getName();
+                while (name.startsWith("/")) {
+                    name = name.substring(1);
+                }
+                if (name.length() > 0 && !name.startsWith(RESERVED_PREFIX)) {
+                    entries.add(entry);
+                }
+            }
+            String[] names = new String[entries.size()];
+            Integer[] order = new Integer[entries.size()];
+            for (int i = 0; i < names.length; i++) {
+                String name = entries.get(i).getName();
+                while (name.startsWith("/")) {
+                    name = name.substring(1);
+                }
+                names[i] = name;
+                order[i] = i;
+            }
+            final String[] unsorted = names.clone();
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer o1, Integer o2) {
+                    return unsorted[o1].compareTo(unsorted[o2]);
+                }
+            });
+            List<Integer> unique = new ArrayList<Integer>(order.length);
+            for (Integer i : order) {
+                // where a name is repeated the first entry wins, as with a lookup in the zip file
+                if (unique.isEmpty() || !unsorted[unique.get(unique.size() - 1)].equals(unsorted[i])) {
+                    unique.add(i);
+                }
+            }
+            names = new String[unique.size()];
+            long[] offsets = new long[unique.size()];
+            long[] sizes = new long[unique.size()];
+            long[] crcs = new long[unique.size()];
+            long[] times = new long[unique.size()];
+            for (int i = 0; i < names.length; i++) {
+                ZipEntry entry = entries.get(unique.get(i));
+                names[i] = unsorted[unique.get(i)];
+                // the plexus zip file does not expose the offsets
+                offsets[i] = -1;
+                sizes[i] = entry.getSize();
+                crcs[i] = entry.getCrc();
+                times[i] = entry.getTime();
+            }
+            return new ZipIndex(names, offsets, sizes, crcs, times);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static ZipIndex parse(byte[] data) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            return null;
+        }
+        int count = input.readInt();
+        String[] names = new String[count];
+        long[] offsets = new long[count];
+        long[] sizes = new long[count];
+        long[] crcs = new long[count];
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = input.readUTF();
+            offsets[i] = input.readLong();
+            sizes[i] = input.readLong();
+            crcs[i] = input.readInt() & 0xffffffffL;
+            times[i] = input.readLong();
+        }
+        return new ZipIndex(names, offsets, sizes, crcs, times);
+    }
+
+    /**
+     * Serializes the index in the format of the {@link #INDEX_ENTRY}. The length only depends on the names, so
+     * the length of the entry is known before the offsets are.
+     *
+     * @return the serialized index.
+     */
+    byte[] toByteArray() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bos);
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                output.writeUTF(names[i]);
+                output.writeLong(offsets[i]);
+                output.writeLong(sizes[i]);
+                output.writeInt((int) crcs[i]);
+                output.writeLong(times[i]);
+            }
+            output.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("ByteArrayOutputStream does not throw IOException", e);
+        } finally {
+            IOUtil.close(output);
+        }
+        return bos.toByteArray();
+    }
+
+    private static final class CacheEntry {
+        private final long length;
+        private final long lastModified;
+        private final ZipIndex index;
+
+        private CacheEntry(long length, long lastModified, ZipIndex index) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.index = index;
+        }
+    }
+
+    private static int readShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xff) | ((buffer[offset + 1] & 0xff) << 8);
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return readShort(buffer, offset) | (readShort(buffer, offset + 2) << 16);
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Finds an entry.
+     *
+     * @param name the name of the entry, directory entries end with {@code /}.
+     * @return the position of the entry or a negative number if there is no such entry.
+     */
+    public int indexOf(String name) {
+        int index = Arrays.binarySearch(names, name);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Returns the position of the first entry whose name is equal to or after the given name, which is where the
+     * entries starting with that name begin.
+     *
+     * @param name the name.
+     * @return the position, which is {@link #size()} if all the entries are before the name.
+     */
+    public int ceiling(String name) {
+        int index = Arrays.binarySearch(names, name);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    /**
+     * Returns {@code true} if there is any entry whose name starts with the given prefix.
+     *
+     * @param prefix the prefix.
+     * @return {@code true} if there is any entry whose name starts with the given prefix.
+     */
+    public boolean hasPrefix(String prefix) {
+        int index = ceiling(prefix);
+        return index < names.length && names[index].startsWith(prefix);
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public boolean isDirectory(int index) {
+        return names[index].endsWith("/");
+    }
+
+    /**
+     * Returns the offset of the entry's local header in the zip file.
+     *
+     * @param index the position of the entry.
+     * @return the offset or {@code -1} if not known.
+     */
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public long getCrc(int index) {
+        return crcs[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+}
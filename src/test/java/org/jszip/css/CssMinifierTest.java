@@ -0,0 +1,54 @@
+package org.jszip.css;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CssMinifierTest {
+
+    private final CssMinifier minifier = new CssMinifier();
+
+    @Test
+    public void whitespaceAndComments() {
+        assertEquals("a,b>c{color:red;margin:0 auto}",
+                minifier.minify("/* header */\na ,\nb > c {\n  color : red ;\n  margin: 0  auto;\n}\n"));
+        assertEquals("a :hover{color:red}", minifier.minify("a :hover { color: red }"));
+        assertEquals("/*! license */a{color:red}", minifier.minify("/*! license */\na { /* c */ color: red; }"));
+    }
+
+    @Test
+    public void emptyRulesAndSemicolons() {
+        assertEquals("b{x:y}", minifier.minify("a { } b { x: y;; } @media screen { c { ; } }"));
+        assertEquals("@media screen and (max-width:100px){a{x:y}}",
+                minifier.minify("@media screen and (max-width: 100px) {\n  a { x: y; }\n}"));
+    }
+
+    @Test
+    public void stringsAndUrlsAreUntouched() {
+        assertEquals("a{content:\"  a  ;  }  \";background:url(x  y.png) no-repeat}",
+                minifier.minify("a { content: \"  a  ;  }  \"; background: url( x  y.png ) no-repeat; }"));
+        assertEquals("a{background:url(/a b.png)}", minifier.minify("a { background: url( /a b.png ); }"));
+        assertEquals("a{width:calc(100% - 2px + 1em)}", minifier.minify("a { width: calc( 100% - 2px + 1em ); }"));
+    }
+
+    @Test
+    public void colours() {
+        assertEquals("a{color:#abc;border:1px solid #FFF!important}",
+                minifier.minify("a { color: #aabbcc; border: 1px solid #FFFFFF !important; }"));
+        assertEquals("#aabbcc{color:#aabbcd;filter:x(c=#ffffff);content:\"#ffffff\"}",
+                minifier.minify("#aabbcc { color: #aabbcd; filter: x(c=#ffffff); content: \"#ffffff\"; }"));
+        assertEquals("a{background:url(#aabbcc) #abc;fill:URL(\"#aabbcc\") #abc}",
+                minifier.minify("a { background: url( #aabbcc ) #aabbcc; fill: URL( \"#aabbcc\" ) #aabbcc; }"));
+        assertEquals("a{background:url(#aabbcc),url(x.svg#ffffff) #abc}",
+                minifier.minify("a { background: url(#aabbcc), url(x.svg#ffffff) #aabbcc; }"));
+    }
+
+    @Test
+    public void shorthands() {
+        assertEquals("a{margin:0;padding:1px 2px;border-width:1px 2px 3px;margin:1px 2px 3px 4px}",
+                minifier.minify("a { margin: 0px 0 0em 0%; padding: 1px 2px 1px 2px; border-width: 1px 2px 3px 2px;"
+                        + " margin: 1px 2px 3px 4px; }"));
+        assertEquals("a{--x:1px 1px;margin:calc(1px) 0 0 0}",
+                minifier.minify("a { --x:  1px  1px; margin: calc(1px) 0 0 0; }"));
+    }
+}
@@ -0,0 +1,90 @@
+package org.jszip.jetty;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.eclipse.jetty.util.resource.Resource;
+import org.jszip.css.CssEngine;
+import org.jszip.pseudo.io.PseudoFileSystem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class GzipResourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void variantFollowsServedContent() throws IOException {
+        File source = new File(folder.getRoot(), "main.less");
+        FileUtils.fileWrite(source, "utf-8", "@import 'colors.less';");
+        final String[] css = {"a{color:red}"};
+        CssEngine engine = new CssEngine() {
+            public String mapName(String sourceFileName) {
+                return sourceFileName.replace(".less", ".css");
+            }
+
+            public String toCSS(String name) {
+                return css[0];
+            }
+        };
+        PseudoFileSystem fs = new PseudoFileSystem(new PseudoFileSystem.FileLayer("/virtual/", folder.getRoot()));
+        CssEngineResource resource = new CssEngineResource(fs, engine, "/virtual/main.less");
+
+        GzipResource variant = new GzipResource("/main.css.gz", resource);
+        assertThat(uncompress(variant), is("a{color:red}"));
+        assertThat(variant.isVariantOf(resource), is(true));
+
+        // an imported file changed, the source file and its timestamp did not, only a refresh picks that up
+        css[0] = "a{color:fed}";
+        assertThat(variant.isVariantOf(resource), is(true));
+        assertThat(uncompress(new GzipResource("/main.css.gz", resource)), is("a{color:fed}"));
+    }
+
+    @Test
+    public void variantsAreServedThroughTheContext() throws Exception {
+        File file = new File(folder.getRoot(), "site.css");
+        FileUtils.fileWrite(file, "utf-8", "a{}");
+        long lastModified = file.lastModified() - 10000L;
+        file.setLastModified(lastModified);
+        JettyWebAppContext context = new JettyWebAppContext();
+        context.setResourceBase(folder.getRoot().getAbsolutePath());
+        context.setPrecompress(true);
+
+        URL url = context.getServletContext().getResource("/site.css.gz");
+        assertThat(url.getProtocol(), is(GzipResource.PROTOCOL));
+        Resource variant = context.newResource(url);
+        assertThat(uncompress((GzipResource) variant), is("a{}"));
+        assertThat(context.getResource("/site.css.gz"), sameInstance(variant));
+
+        // a change that keeps the timestamp is only seen once the context is told that resources were regenerated
+        FileUtils.fileWrite(file, "utf-8", "b{}");
+        file.setLastModified(lastModified);
+        assertThat(context.getResource("/site.css.gz"), sameInstance(variant));
+        context.refreshGzipResources();
+        assertThat(uncompress((GzipResource) context.getResource("/site.css.gz")), is("b{}"));
+
+        FileUtils.fileWrite(file, "utf-8", "c{}");
+        file.setLastModified(lastModified + 5000L);
+        assertThat(uncompress((GzipResource) context.newResource(url)), is("c{}"));
+    }
+
+    private static String uncompress(GzipResource variant) throws IOException {
+        InputStream inputStream = new GZIPInputStream(variant.getInputStream());
+        try {
+            return IOUtil.toString(inputStream, "utf-8");
+        } finally {
+            IOUtil.close(inputStream);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.jszip.jetty;
+
+import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.resource.ResourceCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IndexedDirectoryResourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void smokes() throws IOException {
+        File main = folder.newFile("main.css");
+        File theme = folder.newFile("theme.css");
+        Resource mainResource = Resource.newResource(main);
+        Resource themeResource = Resource.newResource(theme);
+
+        IndexedDirectoryResource index = new IndexedDirectoryResource();
+        index.put("main.css", mainResource);
+        index.put("/css/themes/theme.css", themeResource);
+
+        assertThat(index.size(), is(2));
+        assertThat(index.get("css/themes/theme.css"), is(themeResource));
+        assertThat(index.get("/css/missing.css"), nullValue());
+
+        assertThat(index.exists(), is(true));
+        assertThat(index.isDirectory(), is(true));
+        assertThat(index.list(), is(new String[]{"css/", "main.css"}));
+        assertThat(index.addPath(""), is((Resource) index));
+        assertThat(index.addPath("/main.css"), is(mainResource));
+        assertThat(index.addPath("/css/themes/theme.css"), is(themeResource));
+        assertThat(index.addPath("/css/missing.css").exists(), is(false));
+
+        Resource css = index.addPath("/css");
+        assertThat(css.exists(), is(true));
+        assertThat(css.isDirectory(), is(true));
+        assertThat(css.list(), is(new String[]{"themes/"}));
+        assertThat(css.addPath("themes/theme.css"), is(themeResource));
+        assertThat(css.addPath("main.css").exists(), is(false));
+        assertThat(css.getListHTML("about:foo", false),
+                containsString("<A HREF=\"about:foo/themes/\">themes/&nbsp;</A></TD>"));
+
+        assertThat(index.addPath("/css/themes").list(), is(new String[]{"theme.css"}));
+    }
+
+    @Test
+    public void registrationReplacesThePreviousOne() throws IOException {
+        Resource lessResource = Resource.newResource(folder.newFile("main.less"));
+        Resource sassResource = Resource.newResource(folder.newFile("main.scss"));
+        IndexedDirectoryResource index = new IndexedDirectoryResource();
+
+        index.put("css/main.css", lessResource);
+        index.put("/css/main.css", sassResource);
+        assertThat(index.addPath("/css/main.css"), is(sassResource));
+        assertThat(index.addPath("/css").list(), is(new String[]{"main.css"}));
+        assertThat(index.size(), is(1));
+    }
+
+    @Test
+    public void collection() throws IOException {
+        File main = folder.newFile("main.css");
+        Resource mainResource = Resource.newResource(main);
+        IndexedDirectoryResource index = new IndexedDirectoryResource();
+        index.put("css/main.css", mainResource);
+
+        ResourceCollection root = new ResourceCollection(index);
+        assertThat(root.getResource("/css/main.css"), is(mainResource));
+        assertThat(root.getResource("/css").isDirectory(), is(true));
+    }
+
+    @Test
+    public void remove() throws IOException {
+        Resource mainResource = Resource.newResource(folder.newFile("main.css"));
+        Resource themeResource = Resource.newResource(folder.newFile("theme.css"));
+        IndexedDirectoryResource index = new IndexedDirectoryResource();
+        index.put("css/main.css", mainResource);
+        index.put("css/themes/theme.css", themeResource);
+
+        assertThat(index.remove("/css/themes/theme.css"), is(themeResource));
+        assertThat(index.remove("css/themes/theme.css"), nullValue());
+        assertThat(index.size(), is(1));
+        assertThat(index.addPath("/css").list(), is(new String[]{"main.css"}));
+        assertThat(index.addPath("/css/themes").exists(), is(false));
+
+        assertThat(index.remove("css/main.css"), is(mainResource));
+        assertThat(index.list(), is(new String[0]));
+        assertThat(index.addPath("/css").exists(), is(false));
+    }
+
+    @Test
+    public void equality() throws IOException {
+        Resource mainResource = Resource.newResource(folder.newFile("main.css"));
+        IndexedDirectoryResource index1 = new IndexedDirectoryResource();
+        index1.put("css/main.css", mainResource);
+        IndexedDirectoryResource index2 = new IndexedDirectoryResource();
+        index2.put("/css/main.css", mainResource);
+        assertThat(index1.equals(index2), is(true));
+        assertThat(index1.hashCode(), is(index2.hashCode()));
+        index2.put("print.css", mainResource);
+        assertThat(index1.equals(index2), is(false));
+    }
+}
@@ -0,0 +1,56 @@
+package org.jszip.jetty;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.eclipse.jetty.util.resource.Resource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void urlsResolveBackToTheCache() throws Exception {
+        File file = new File(folder.getRoot(), "site.css");
+        FileUtils.fileWrite(file, "utf-8", "a{}");
+        JettyWebAppContext context = new JettyWebAppContext();
+        context.setResourceBase(folder.getRoot().getAbsolutePath());
+        context.setResourceCache(new ResourceCache(1024, 1024));
+
+        Resource cached = context.getResource("/site.css");
+        assertThat(cached, instanceOf(CachedResource.class));
+
+        // the default servlet resolves the URL that the servlet context hands out
+        URL url = context.getServletContext().getResource("/site.css");
+        assertThat(url.getProtocol(), is(CachedResource.PROTOCOL));
+        assertThat(context.newResource(url), sameInstance(cached));
+        assertThat(read(Resource.newResource(url)), is("a{}"));
+
+        FileUtils.fileWrite(file, "utf-8", "a{color:red}");
+        Resource refreshed = context.newResource(url);
+        assertThat(refreshed, instanceOf(CachedResource.class));
+        assertThat(read(refreshed), is("a{color:red}"));
+    }
+
+    private static String read(Resource resource) throws IOException {
+        InputStream inputStream = resource.getInputStream();
+        try {
+            return IOUtil.toString(inputStream, "utf-8");
+        } finally {
+            IOUtil.close(inputStream);
+        }
+    }
+}
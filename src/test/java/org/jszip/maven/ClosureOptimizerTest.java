@@ -0,0 +1,54 @@
+package org.jszip.maven;
+
+import com.google.javascript.jscomp.CompilationLevel;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ClosureOptimizerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void minifiesInPlace() throws IOException {
+        File app = folder.newFile("app.js");
+        FileUtils.fileWrite(app.getPath(), "UTF-8",
+                "// the application\nfunction greet(name) {\n    var message = 'Hello, ' + name;\n"
+                        + "    return message;\n}\nwindow.greet = greet;\n");
+        File lib = folder.newFile("lib.js");
+        FileUtils.fileWrite(lib.getPath(), "UTF-8", "var answer = 40 + 2;\n");
+
+        new ClosureOptimizer(new SystemStreamLog(), CompilationLevel.SIMPLE_OPTIMIZATIONS, 2)
+                .optimize(Arrays.asList(app, lib));
+
+        assertThat(FileUtils.fileRead(app, "UTF-8"),
+                is("function greet(a){return\"Hello, \"+a}window.greet=greet;"));
+        assertThat(FileUtils.fileRead(lib, "UTF-8"), is("var answer=42;"));
+    }
+
+    @Test
+    public void reportsCompilationErrors() throws IOException {
+        File broken = folder.newFile("broken.js");
+        FileUtils.fileWrite(broken.getPath(), "UTF-8", "var = ;\n");
+        try {
+            new ClosureOptimizer(new SystemStreamLog(), CompilationLevel.WHITESPACE_ONLY, 1)
+                    .optimize(Collections.singletonList(broken));
+            fail("the file does not compile");
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("Could not compile " + broken), is(true));
+        }
+        assertThat(FileUtils.fileRead(broken, "UTF-8"), is("var = ;\n"));
+    }
+}
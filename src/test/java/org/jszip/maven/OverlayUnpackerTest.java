@@ -0,0 +1,241 @@
+package org.jszip.maven;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.jszip.pseudo.io.FilePseudoFile;
+import org.jszip.pseudo.io.PseudoFileOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OverlayUnpackerTest {
+
+    private static final String[] EXCLUDES =
+            {"META-INF/maven/**/pom.*", "package.json", "**/*.less", "**/*.sass", "**/*.scss"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void zipMatchesZipUnArchiver() throws Exception {
+        File zip = zip("lib.zip", "js/app.js", "var app;", "js/lib/", null, "css/site.less", "@a: 1;",
+                "css/site.css", "a{}", "META-INF/maven/g/a/pom.xml", "<project/>", "package.json", "{}");
+
+        assertSameTree(unpack(null, EXCLUDES, zip), extract(null, EXCLUDES, zip));
+        assertSameTree(unpack(new String[]{"js/**"}, null, zip), extract(new String[]{"js/**"}, null, zip));
+        assertSameTree(unpack(new String[]{"**/*.css", "js/"}, new String[]{"js/lib/**"}, zip),
+                extract(new String[]{"**/*.css", "js/**"}, new String[]{"js/lib/**"}, zip));
+    }
+
+    @Test
+    public void laterOverlaysWin() throws Exception {
+        File first = zip("first.zip", "js/app.js", "var first;", "js/first.js", "1");
+        File second = zip("second.zip", "js/app.js", "var second;", "js/second.js", "2");
+
+        File actual = unpack(null, null, first, second);
+        assertSameTree(actual, extract(null, null, first, second));
+        assertThat(FileUtils.fileRead(new File(actual, "js/app.js")), is("var second;"));
+    }
+
+    @Test
+    public void directoryMatchesCopyDirectory() throws Exception {
+        File source = directory("module", "js/app.js", "var app;", "css/site.css", "a{}", ".svn/entries", "svn");
+
+        for (LinkMode linkMode : LinkMode.values()) {
+            File actual = folder.newFolder("actual-" + linkMode);
+            OverlayUnpacker unpacker = new OverlayUnpacker(new SystemStreamLog(), 2);
+            unpacker.setLinkMode(linkMode);
+            unpacker.addDirectory(source, actual);
+            unpacker.unpack();
+
+            // FileUtils.copyDirectory selects the same files but flattens them into the target directory
+            File expected = folder.newFolder("expected-" + linkMode);
+            for (String name : FileUtils.getFileNames(source, "**", null, false)) {
+                FileUtils.copyFile(new File(source, name), new File(expected, name));
+            }
+            assertSameTree(actual, expected);
+        }
+    }
+
+    @Test
+    public void writesDoNotReachLinkedSources() throws Exception {
+        File source = directory("module", "js/app.js", "var app;");
+        File actual = folder.newFolder("actual");
+        OverlayUnpacker unpacker = new OverlayUnpacker(new SystemStreamLog(), 1);
+        unpacker.setLinkMode(LinkMode.HARDLINK);
+        unpacker.addDirectory(source, actual);
+        unpacker.unpack();
+
+        OutputStream outputStream =
+                new PseudoFileOutputStream(new FilePseudoFile(null, new File(actual, "js/app.js")));
+        try {
+            IOUtil.copy("var optimized;", outputStream);
+        } finally {
+            outputStream.close();
+        }
+        assertThat(FileUtils.fileRead(new File(actual, "js/app.js")), is("var optimized;"));
+        assertThat(FileUtils.fileRead(new File(source, "js/app.js")), is("var app;"));
+    }
+
+    @Test
+    public void incrementalUnpackOnlyAppliesChanges() throws Exception {
+        File zip = zip("lib.zip", "js/app.js", "var app;", "js/old.js", "var old;", "css/site.css", "a{}");
+        File manifest = new File(folder.getRoot(), "unpack.json");
+        File actual = folder.newFolder("actual");
+
+        CountingLog log = unpack(zip, actual, manifest);
+        assertThat(log.messages.get(0), is("Unpacked 3 files from 1 overlays (0 unchanged, 0 removed)"));
+
+        log = unpack(zip, actual, manifest);
+        assertThat(log.messages.get(0), is("Unpacked 0 files from 1 overlays (3 unchanged, 0 removed)"));
+
+        // a target file modified since the last unpack is restored, even if its length is unchanged
+        File site = new File(actual, "css/site.css");
+        FileUtils.fileWrite(site.getPath(), "b{}");
+        site.setLastModified(site.lastModified() + 10000L);
+        log = unpack(zip, actual, manifest);
+        assertThat(log.messages.get(0), is("Unpacked 1 files from 1 overlays (2 unchanged, 0 removed)"));
+        assertThat(FileUtils.fileRead(site), is("a{}"));
+
+        zip.delete();
+        zip = zip("lib.zip", "js/app.js", "var app = {};", "css/site.css", "a{}");
+        zip.setLastModified(zip.lastModified() + 10000L);
+        log = unpack(zip, actual, manifest);
+        assertThat(log.messages.get(0), is("Unpacked 1 files from 1 overlays (1 unchanged, 1 removed)"));
+        assertSameTree(actual, extract(null, null, zip));
+    }
+
+    @Test
+    public void removalLeavesFilesWrittenSinceTheLastUnpack() throws Exception {
+        File zip = zip("lib.zip", "js/app.js", "var app;", "js/old.js", "var old;");
+        File manifest = new File(folder.getRoot(), "unpack.json");
+        File actual = folder.newFolder("actual");
+        unpack(zip, actual, manifest);
+
+        // another goal rewrites a file that the next overlay no longer contains
+        File old = new File(actual, "js/old.js");
+        FileUtils.fileWrite(old.getPath(), "var optimized;");
+        old.setLastModified(old.lastModified() + 10000L);
+
+        zip.delete();
+        zip = zip("lib.zip", "js/app.js", "var app;");
+        zip.setLastModified(zip.lastModified() + 10000L);
+        CountingLog log = unpack(zip, actual, manifest);
+        assertThat(log.messages.get(0), is("Unpacked 0 files from 1 overlays (1 unchanged, 0 removed)"));
+        assertThat(FileUtils.fileRead(old), is("var optimized;"));
+    }
+
+    private CountingLog unpack(File zip, File location, File manifest) throws IOException {
+        CountingLog log = new CountingLog();
+        OverlayUnpacker unpacker = new OverlayUnpacker(log, 2);
+        unpacker.setManifestFile(manifest);
+        unpacker.addZip(zip, location, null, null);
+        unpacker.unpack();
+        return log;
+    }
+
+    private File unpack(String[] includes, String[] excludes, File... zips) throws IOException {
+        File location = folder.newFolder();
+        OverlayUnpacker unpacker = new OverlayUnpacker(new SystemStreamLog(), 2);
+        for (File zip : zips) {
+            unpacker.addZip(zip, location, includes, excludes);
+        }
+        unpacker.unpack();
+        return location;
+    }
+
+    private File extract(String[] includes, String[] excludes, File... zips) throws Exception {
+        File location = folder.newFolder();
+        for (File zip : zips) {
+            ZipUnArchiver unArchiver = new ZipUnArchiver(zip);
+            unArchiver.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"));
+            unArchiver.setDestDirectory(location);
+            if (includes != null || excludes != null) {
+                IncludeExcludeFileSelector selector = new IncludeExcludeFileSelector();
+                selector.setIncludes(includes);
+                selector.setExcludes(excludes);
+                unArchiver.setFileSelectors(new FileSelector[]{selector});
+            }
+            unArchiver.extract();
+        }
+        return location;
+    }
+
+    private File zip(String name, String... entries) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(entries[i]));
+                if (entries[i + 1] != null) {
+                    zip.write(entries[i + 1].getBytes("UTF-8"));
+                }
+                zip.closeEntry();
+            }
+        } finally {
+            zip.close();
+        }
+        return file;
+    }
+
+    private File directory(String name, String... files) throws IOException {
+        File directory = folder.newFolder(name);
+        for (int i = 0; i < files.length; i += 2) {
+            File file = new File(directory, files[i]);
+            file.getParentFile().mkdirs();
+            FileUtils.fileWrite(file.getPath(), "UTF-8", files[i + 1]);
+        }
+        return directory;
+    }
+
+    private static void assertSameTree(File actual, File expected) throws IOException {
+        assertThat(tree(actual), is(tree(expected)));
+    }
+
+    private static Map<String, String> tree(File directory) throws IOException {
+        Map<String, String> tree = new TreeMap<String, String>();
+        tree(directory, "", tree);
+        return tree;
+    }
+
+    private static void tree(File directory, String path, Map<String, String> tree) throws IOException {
+        File[] files = directory.listFiles();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                tree.put(path + file.getName() + "/", "");
+                tree(file, path + file.getName() + "/", tree);
+            } else {
+                tree.put(path + file.getName(), FileUtils.fileRead(file, "UTF-8"));
+            }
+        }
+    }
+
+    private static class CountingLog extends SystemStreamLog {
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public void info(CharSequence content) {
+            messages.add(content.toString());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.util.SelectorUtils;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompiledPathPatternsTest {
+
+    private static final String[] PATTERNS = {
+            "**", "**/*.js", "**/*.less", "*.css", "css/**", "css/*.css", "META-INF/maven/**/pom.*", "package.json",
+            "**/test/**/XYZ*", "a/**/b/**/c.js", "/abs/**", "a/?.js", "**/*.min.js", "**/**", "**/CVS/**",
+            "a/b", "**/a/**/b", "%regex[.*\\.scss]"
+    };
+
+    private static final String[] PATHS = {
+            "", "a.js", "js/a.js", "css/a.css", "css/x/a.css", "a.css", "META-INF/maven/g/a/pom.xml",
+            "package.json", "x/package.json", "p/test/q/r/XYZ1", "test/XYZ", "a/b/c.js", "a/x/b/y/c.js", "a/c.js",
+            "/abs/x", "abs/x", "a/1.js", "a/12.js", "x.min.js", "js", "css", "CVS", "x/CVS/y", "a/b", "a",
+            "x/a/y/b", "A.JS", "foo.scss", "d/foo.scss", "a//b", "a/b/"
+    };
+
+    @Test
+    public void sameResultsAsSelectorUtils() {
+        for (boolean caseSensitive : new boolean[]{true, false}) {
+            for (String pattern : PATTERNS) {
+                pattern = pattern.replace('/', File.separatorChar);
+                CompiledPathPatterns compiled = new CompiledPathPatterns(new String[]{pattern}, caseSensitive);
+                for (String path : PATHS) {
+                    path = path.replace('/', File.separatorChar);
+                    assertEquals(pattern + " matches " + path,
+                            SelectorUtils.matchPath(pattern, path, caseSensitive), compiled.matches(path));
+                    assertEquals(pattern + " could match below " + path,
+                            SelectorUtils.matchPatternStart(pattern, path, caseSensitive),
+                            compiled.matchesStart(path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void combinedPatterns() {
+        String[] patterns = {"**/*.less", "css/**/*.css", "META-INF/**", "*.json"};
+        CompiledPathPatterns compiled = new CompiledPathPatterns(patterns, true);
+        for (String path : PATHS) {
+            boolean matches = false;
+            boolean matchesStart = false;
+            for (String pattern : patterns) {
+                matches |= SelectorUtils.matchPath(pattern, path, true);
+                matchesStart |= SelectorUtils.matchPatternStart(pattern, path, true);
+            }
+            assertEquals(path, matches, compiled.matches(path));
+            assertEquals(path, matchesStart, compiled.matchesStart(path));
+        }
+    }
+}
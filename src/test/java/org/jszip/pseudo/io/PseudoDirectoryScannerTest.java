@@ -0,0 +1,124 @@
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PseudoDirectoryScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PseudoFileSystem fs;
+
+    @Before
+    public void setUp() throws IOException {
+        File root = folder.newFolder("virtual");
+        for (String name : new String[]{"a.js", "b.txt", "lib/c.js", "lib/deep/d.js", "lib/deep/e.txt",
+                "lib/deep/deeper/f.js", "skip/g.js", "skip/inner/h.js", "other/i.js", "other/j.css"}) {
+            File file = new File(root, name);
+            file.getParentFile().mkdirs();
+            FileUtils.fileWrite(file.getPath(), "UTF-8", name);
+        }
+        fs = new PseudoFileSystem(new PseudoFileSystem.FileLayer(root));
+    }
+
+    @Test
+    public void parallelScanMatchesSingleThreadedScan() {
+        PseudoDirectoryScanner single = scanner(new PseudoDirectoryScanner());
+        single.scan();
+        PseudoDirectoryScanner parallel = scanner(new PseudoDirectoryScanner());
+        parallel.setThreads(4);
+        parallel.scan();
+
+        assertThat(parallel.getIncludedFiles(), is(sorted(single.getIncludedFiles())));
+        assertThat(parallel.getExcludedDirectories(), is(sorted(single.getExcludedDirectories())));
+        assertThat(parallel.getIncludedFiles(),
+                is(new String[]{"a.js", "lib/c.js", "lib/deep/d.js", "lib/deep/deeper/f.js", "other/i.js"}));
+        assertThat(parallel.getExcludedDirectories(), is(new String[]{"skip/inner"}));
+    }
+
+    @Test
+    public void parallelScanRethrowsSelectorFailures() {
+        final IllegalStateException failure = new IllegalStateException("cannot select");
+        PseudoDirectoryScanner scanner = scanner(new PseudoDirectoryScanner() {
+            @Override
+            protected boolean isSelected(String name, PseudoFile file) {
+                if (name.endsWith("d.js")) {
+                    throw failure;
+                }
+                return true;
+            }
+        });
+        scanner.setThreads(4);
+        try {
+            scanner.scan();
+            fail("the failure of a scanning thread must reach the caller");
+        } catch (IllegalStateException e) {
+            assertThat(e, is(failure));
+        }
+    }
+
+    @Test
+    public void includedFilesMatchesScan() {
+        PseudoDirectoryScanner scanner = scanner(new PseudoDirectoryScanner());
+        scanner.scan();
+        assertThat(list(scanner(new PseudoDirectoryScanner()).includedFiles()),
+                is(Arrays.asList(scanner.getIncludedFiles())));
+    }
+
+    @Test
+    public void includedFilesMatchesScanWithoutFollowingSymlinks() {
+        PseudoDirectoryScanner scanner = scanner(new LinkingScanner());
+        scanner.setFollowSymlinks(false);
+        scanner.scan();
+        PseudoDirectoryScanner streaming = scanner(new LinkingScanner());
+        streaming.setFollowSymlinks(false);
+        assertThat(list(streaming.includedFiles()), is(Arrays.asList(scanner.getIncludedFiles())));
+        assertThat(list(streaming.includedFiles()), is(Arrays.asList("a.js", "lib/c.js", "other/i.js")));
+    }
+
+    private PseudoDirectoryScanner scanner(PseudoDirectoryScanner scanner) {
+        scanner.setFileSystem(fs);
+        scanner.setBasedir(fs.root());
+        scanner.setIncludes(new String[]{"**/*.js", "**/inner"});
+        scanner.setExcludes(new String[]{"skip/**"});
+        return scanner;
+    }
+
+    private static List<String> list(Iterable<String> names) {
+        List<String> result = new ArrayList<String>();
+        for (String name : names) {
+            result.add(name);
+        }
+        return result;
+    }
+
+    private static String[] sorted(String[] names) {
+        String[] result = names.clone();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Treats {@code lib/deep} as a symbolic link.
+     */
+    private static class LinkingScanner extends PseudoDirectoryScanner {
+        @Override
+        public boolean isSymbolicLink(PseudoFile parent, String name) throws IOException {
+            return name.equals("deep") && parent.getName().equals("lib");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PseudoDirectorySnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+
+    private PseudoDirectorySnapshot snapshot;
+
+    /**
+     * Directories modified within the last couple of seconds are always listed again, so the tests move the
+     * modification times back, by a different amount each time so that every change is seen.
+     */
+    private long settled = System.currentTimeMillis() / 1000L * 1000L - 3600000L;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("virtual");
+        PseudoFileSystem fs = new PseudoFileSystem(new PseudoFileSystem.FileLayer(root));
+        PseudoDirectoryScanner scanner = new PseudoDirectoryScanner();
+        scanner.setFileSystem(fs);
+        scanner.setBasedir(fs.root());
+        scanner.setIncludes(new String[]{"**/*.less"});
+        snapshot = new PseudoDirectorySnapshot(scanner);
+    }
+
+    @Test
+    public void reportsAddedAndRemovedFiles() throws IOException {
+        create("a.less", "sub/b.less", "c.txt");
+        PseudoDirectorySnapshot.Changes changes = snapshot.refresh();
+        assertThat(set(changes.getAdded()), is(set("a.less", "sub/b.less")));
+        assertThat(changes.getRemoved().isEmpty(), is(true));
+
+        assertThat(snapshot.refresh().isEmpty(), is(true));
+
+        create("sub/d.less");
+        changes = snapshot.refresh();
+        assertThat(set(changes.getAdded()), is(set("sub/d.less")));
+        assertThat(changes.getRemoved().isEmpty(), is(true));
+
+        delete("a.less");
+        changes = snapshot.refresh();
+        assertThat(changes.getAdded().isEmpty(), is(true));
+        assertThat(set(changes.getRemoved()), is(set("a.less")));
+        assertThat(set(snapshot.getIncludedFiles()), is(set("sub/b.less", "sub/d.less")));
+    }
+
+    @Test
+    public void forgetsRemovedSubdirectories() throws IOException {
+        create("a.less", "sub/b.less", "sub/deeper/c.less");
+        snapshot.refresh();
+
+        FileUtils.deleteDirectory(new File(root, "sub"));
+        settle();
+        PseudoDirectorySnapshot.Changes changes = snapshot.refresh();
+        assertThat(changes.getAdded().isEmpty(), is(true));
+        assertThat(set(changes.getRemoved()), is(set("sub/b.less", "sub/deeper/c.less")));
+        assertThat(set(snapshot.getIncludedFiles()), is(set("a.less")));
+
+        // a directory that comes back is scanned from scratch
+        create("sub/deeper/c.less");
+        assertThat(set(snapshot.refresh().getAdded()), is(set("sub/deeper/c.less")));
+    }
+
+    @Test
+    public void invalidateListsADirectoryAgain() throws IOException {
+        create("a.less", "sub/b.less");
+        snapshot.refresh();
+
+        // a change that the listing stamps cannot see
+        File sub = new File(root, "sub");
+        long lastModified = sub.lastModified();
+        FileUtils.fileWrite(new File(sub, "c.less").getPath(), "UTF-8", "");
+        sub.setLastModified(lastModified);
+        assertThat(snapshot.refresh().isEmpty(), is(true));
+
+        snapshot.invalidate("/sub/");
+        assertThat(set(snapshot.refresh().getAdded()), is(set("sub/c.less")));
+    }
+
+    private void create(String... names) throws IOException {
+        for (String name : names) {
+            File file = new File(root, name);
+            file.getParentFile().mkdirs();
+            FileUtils.fileWrite(file.getPath(), "UTF-8", "");
+        }
+        settle();
+    }
+
+    private void delete(String name) {
+        new File(root, name).delete();
+        settle();
+    }
+
+    private void settle() {
+        settled -= 1000L;
+        settle(root);
+    }
+
+    private void settle(File directory) {
+        directory.setLastModified(settled);
+        for (File file : directory.listFiles()) {
+            if (file.isDirectory()) {
+                settle(file);
+            }
+        }
+    }
+
+    private static Set<String> set(String... names) {
+        return new TreeSet<String>(Arrays.asList(names));
+    }
+
+    private static Set<String> set(List<String> names) {
+        return new TreeSet<String>(names);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PseudoFileSystemTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cachedListingsFollowTheDirectories() throws IOException {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+        write(first, "app.js", "first");
+        write(second, "app.js", "second");
+        write(second, "lib.js", "lib");
+        // a settled directory, its listing is cached
+        long settled = System.currentTimeMillis() / 1000L * 1000L - 3600000L;
+        first.setLastModified(settled);
+        second.setLastModified(settled);
+
+        PseudoFileSystem fs = new PseudoFileSystem(new PseudoFileSystem.FileLayer(first),
+                new PseudoFileSystem.FileLayer(second));
+        assertThat(names(fs), is(Arrays.asList("app.js", "lib.js")));
+        assertThat(names(fs), is(Arrays.asList("app.js", "lib.js")));
+
+        // a file added to a directory that has settled again since
+        write(first, "main.js", "main");
+        first.setLastModified(settled + 1000L);
+        assertThat(names(fs), is(Arrays.asList("app.js", "lib.js", "main.js")));
+
+        // a file added to a directory modified within the racy interval
+        write(second, "util.js", "util");
+        assertThat(names(fs), is(Arrays.asList("app.js", "lib.js", "main.js", "util.js")));
+
+        // the first layer still wins a name that both have
+        PseudoFile app = fs.listChildren(fs.root(), PseudoFileFilter.FILTER_NONE)[0];
+        InputStream inputStream = new PseudoFileInputStream(app);
+        try {
+            assertThat(IOUtil.toString(inputStream, "UTF-8"), is("first"));
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static List<String> names(PseudoFileSystem fs) {
+        List<String> names = new ArrayList<String>();
+        for (PseudoFile file : fs.listChildren(fs.root(), PseudoFileFilter.FILTER_NONE)) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    private static void write(File directory, String name, String content) throws IOException {
+        FileUtils.fileWrite(new File(directory, name).getPath(), "UTF-8", content);
+    }
+}
@@ -0,0 +1,90 @@
+package org.jszip.pseudo.io;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ZipPseudoFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamsEntriesAboveTheBufferThreshold() throws IOException {
+        byte[] large = new byte[3 * 1024 * 1024 / 2];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 31 + i / 7);
+        }
+        File file = folder.newFile("large.zip");
+        writeZip(file, large, "var small = 1;");
+
+        PseudoFileSystem fs = new PseudoFileSystem(new PseudoFileSystem.ZipLayer("/lib", file));
+        try {
+            InputStream stream = new PseudoFileInputStream(fs.getPseudoFile("/lib/large.bin"));
+            try {
+                // the zip file stays open for other readers while the large entry is streamed
+                assertThat(read(fs, "/lib/small.js"), is("var small = 1;"));
+                assertThat(Arrays.equals(IOUtil.toByteArray(stream), large), is(true));
+            } finally {
+                stream.close();
+            }
+            assertThat(read(fs, "/lib/small.js"), is("var small = 1;"));
+        } finally {
+            fs.close();
+        }
+    }
+
+    @Test
+    public void reopensTheZipFileAfterCloseOrChange() throws IOException {
+        File file = folder.newFile("lib.zip");
+        writeZip(file, new byte[]{1}, "var small = 1;");
+
+        PseudoFileSystem fs = new PseudoFileSystem(new PseudoFileSystem.ZipLayer("/lib", file));
+        try {
+            assertThat(read(fs, "/lib/small.js"), is("var small = 1;"));
+            fs.close();
+            assertThat(read(fs, "/lib/small.js"), is("var small = 1;"));
+
+            writeZip(file, new byte[]{1}, "var small = 2;");
+            file.setLastModified(file.lastModified() - 10000L);
+            assertThat(read(fs, "/lib/small.js"), is("var small = 2;"));
+        } finally {
+            fs.close();
+        }
+    }
+
+    private static String read(PseudoFileSystem fs, String path) throws IOException {
+        InputStream stream = new PseudoFileInputStream(fs.getPseudoFile(path));
+        try {
+            return IOUtil.toString(stream, "UTF-8");
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void writeZip(File file, byte[] large, String small) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            zip.putNextEntry(new ZipEntry("large.bin"));
+            zip.write(large);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("small.js"));
+            zip.write(small.getBytes("UTF-8"));
+            zip.closeEntry();
+        } finally {
+            zip.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.jszip.rhino;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.jszip.js.JavaScriptError;
+import org.jszip.js.JavaScriptScope;
+import org.jszip.pseudo.io.PseudoFileSystem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RhinoRuntimeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readFileIsOnlyRedirectedWhenAskedFor() throws IOException, JavaScriptError {
+        File file = new File(folder.getRoot(), "greeting.txt");
+        FileUtils.fileWrite(file, "UTF-8", "hello");
+        PseudoFileSystem fs = new PseudoFileSystem(new PseudoFileSystem.FileLayer("/virtual", folder.getRoot()));
+        RhinoRuntime runtime = new RhinoRuntime();
+
+        JavaScriptScope pseudo = runtime.newScope(fs, true, new SystemStreamLog());
+        assertThat(pseudo.execute("readFile('/virtual/greeting.txt')", "test", 1), is((Object) "hello"));
+
+        // the shell's readFile reads from the real file system
+        JavaScriptScope shell = runtime.newScope(fs, false, new SystemStreamLog());
+        String path = file.getAbsolutePath().replace('\\', '/');
+        assertThat(shell.execute("readFile('" + path + "')", "test", 1), is((Object) "hello"));
+    }
+}
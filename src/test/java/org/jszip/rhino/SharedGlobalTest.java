@@ -0,0 +1,116 @@
+package org.jszip.rhino;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.tools.shell.ShellContextFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SharedGlobalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = new ShellContextFactory().enterContext();
+    }
+
+    @After
+    public void tearDown() {
+        Context.exit();
+    }
+
+    @Test
+    public void scopesDoNotSeeEachOthersVariables() {
+        ScriptableObject first = SharedGlobal.newScope(context);
+        ScriptableObject second = SharedGlobal.newScope(context);
+
+        evaluate(first, "var shared = 'first'; function helper() { return 1; }");
+        assertThat(evaluate(first, "typeof shared + ' ' + typeof helper"), is((Object) "string function"));
+        assertThat(evaluate(second, "typeof shared + ' ' + typeof helper"), is((Object) "undefined undefined"));
+        assertThat(SharedGlobal.get().has("shared", SharedGlobal.get()), is(false));
+
+        evaluate(second, "var shared = 'second'");
+        assertThat(evaluate(first, "shared"), is((Object) "first"));
+    }
+
+    @Test
+    public void builtInPrototypesCanBeExtended() {
+        ScriptableObject scope = SharedGlobal.newScope(context);
+        try {
+            assertThat(evaluate(scope, "Object.prototype.jszipTest = 1; ({}).jszipTest"), is((Object) 1));
+        } finally {
+            evaluate(scope, "delete Object.prototype.jszipTest");
+        }
+    }
+
+    @Test
+    public void compiledClassesAreLoadedFromTheCache() throws IOException {
+        File cache = folder.newFolder("cache");
+        context.setOptimizationLevel(9);
+        String source = "var answer = 6 * 7; answer";
+        RecordingLog log = new RecordingLog();
+
+        Script compiled = SharedGlobal.compile(context, source, "answer.js", 1, cache, log);
+        assertThat(run(compiled), is((Object) 42));
+        assertThat(cache.list().length, is(1));
+        assertThat(log.messages.isEmpty(), is(true));
+
+        SharedGlobal.clearScripts();
+        Script loaded = SharedGlobal.compile(context, source, "answer.js", 1, cache, log);
+        assertThat(run(loaded), is((Object) 42));
+        assertThat(loaded.getClass().getName(), is(compiled.getClass().getName()));
+        assertThat(log.messages.get(0).startsWith("Loaded compiled answer.js from "), is(true));
+
+        // classes compiled with other settings are kept apart
+        context.setLanguageVersion(context.getLanguageVersion() == Context.VERSION_1_5
+                ? Context.VERSION_1_7 : Context.VERSION_1_5);
+        SharedGlobal.compile(context, source, "answer.js", 1, cache, log);
+        assertThat(cache.list().length, is(2));
+    }
+
+    private Object run(Script script) {
+        Object result = script.exec(context, SharedGlobal.newScope(context));
+        return result instanceof Number ? ((Number) result).intValue() : result;
+    }
+
+    private Object evaluate(ScriptableObject scope, String source) {
+        Object result = context.evaluateString(scope, source, "test", 1, null);
+        return result instanceof Number ? ((Number) result).intValue() : result;
+    }
+
+    private static class RecordingLog extends SystemStreamLog {
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public boolean isDebugEnabled() {
+            return true;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+            messages.add(content.toString());
+        }
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {
+            messages.add(content.toString());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.jszip.zip;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParallelZipArchiverTest {
+
+    /**
+     * 2012-12-24T18:30:10Z.
+     */
+    private static final long DATED = 1356373810000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesAreReadableByJavaUtilZip() throws IOException {
+        File file = folder.newFile("site.zip");
+        File script = folder.newFile("app.js");
+        FileUtils.fileWrite(script.getPath(), "UTF-8", "var app = {};\nvar app = {};\nvar app = {};");
+        ParallelZipArchiver archiver = new ParallelZipArchiver();
+        archiver.setThreads(2);
+        archiver.addFile(script, "js/app.js");
+        archiver.addBytes("var other = {};".getBytes("UTF-8"), "js/app.js");
+        archiver.addBytes(new byte[]{1, 2, 3}, "img/logo.png");
+        archiver.createArchive(file);
+
+        ZipFile zip = new ZipFile(file);
+        try {
+            assertThat(zip.size(), is(5));
+            assertThat(zip.getEntry("js/").isDirectory(), is(true));
+            assertThat(zip.getEntry("img/").isDirectory(), is(true));
+            ZipEntry app = zip.getEntry("js/app.js");
+            assertThat(app.getMethod(), is(ZipEntry.DEFLATED));
+            // the first addition wins
+            assertThat(read(zip, app), is("var app = {};\nvar app = {};\nvar app = {};"));
+            ZipEntry logo = zip.getEntry("img/logo.png");
+            assertThat(logo.getMethod(), is(ZipEntry.STORED));
+            assertThat(logo.getSize(), is(3L));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void outputDoesNotDependOnTheTimeZone() throws IOException {
+        TimeZone timeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            byte[] west = createDatedArchive("west.zip");
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            byte[] east = createDatedArchive("east.zip");
+            assertThat(Arrays.equals(west, east), is(true));
+
+            // the timestamp is recorded as UTC, which java.util.zip reads as local time
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            ZipFile zip = new ZipFile(new File(folder.getRoot(), "east.zip"));
+            try {
+                assertThat(zip.getEntry("package.json").getTime(), is(DATED));
+            } finally {
+                zip.close();
+            }
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
+    private byte[] createDatedArchive(String name) throws IOException {
+        File file = folder.newFile(name);
+        ParallelZipArchiver archiver = new ParallelZipArchiver();
+        archiver.setTimestamp(DATED);
+        archiver.addBytes("{}".getBytes("UTF-8"), "package.json");
+        archiver.createArchive(file);
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return IOUtil.toByteArray(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void indexCountsTowardsTheEntryLimit() throws IOException {
+        ParallelZipArchiver archiver = new ParallelZipArchiver();
+        for (int i = 0; i < 0xfffe; i++) {
+            archiver.addBytes(new byte[0], Integer.toString(i));
+        }
+        File file = folder.newFile("full.zip");
+        archiver.createArchive(file);
+        ZipFile zip = new ZipFile(file);
+        try {
+            assertThat(zip.size(), is(0xffff));
+        } finally {
+            zip.close();
+        }
+
+        archiver.addBytes(new byte[0], "one-too-many");
+        try {
+            archiver.createArchive(folder.newFile("overfull.zip"));
+            fail("65535 entries and the index do not fit in a zip file without zip64");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static String read(ZipFile zip, ZipEntry entry) throws IOException {
+        InputStream inputStream = zip.getInputStream(entry);
+        try {
+            return IOUtil.toString(inputStream, "UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.jszip.zip;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ZipIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelArchiverIsReproducibleAndIndexed() throws IOException {
+        File first = folder.newFile("first.zip");
+        File second = folder.newFile("second.zip");
+        for (File file : new File[]{first, second}) {
+            ParallelZipArchiver archiver = new ParallelZipArchiver();
+            archiver.setThreads(3);
+            archiver.addBytes("var app = {};".getBytes("UTF-8"), "js/app.js");
+            archiver.addBytes("var lib = {};".getBytes("UTF-8"), "js/lib/lib.js");
+            archiver.addBytes(new byte[]{1, 2, 3}, "img/logo.png");
+            archiver.addBytes("{}".getBytes("UTF-8"), "package.json");
+            archiver.createArchive(file);
+        }
+        assertThat(FileUtils.contentEquals(first, second), is(true));
+
+        ZipInputStream zip = new ZipInputStream(new FileInputStream(first));
+        try {
+            assertThat(zip.getNextEntry().getName(), is(ZipIndex.INDEX_ENTRY));
+        } finally {
+            zip.close();
+        }
+
+        ZipIndex index = ZipIndex.read(first);
+        assertThat(index.size(), is(7));
+        assertThat(index.getName(0), is("img/"));
+        assertThat(index.isDirectory(0), is(true));
+        int app = index.indexOf("js/app.js");
+        assertThat(index.getName(app), is("js/app.js"));
+        assertThat(index.getSize(app), is(13L));
+        assertThat(index.getOffset(app) > 0, is(true));
+        assertThat(index.indexOf("js/missing.js"), is(-1));
+        assertThat(index.hasPrefix("js/lib/"), is(true));
+        assertThat(index.getName(index.ceiling("js/")), is("js/"));
+    }
+
+    @Test
+    public void fallsBackToCentralDirectory() throws IOException {
+        File file = folder.newFile("plain.zip");
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (String name : new String[]{"b/c.js", "a/", "a/b.js", "META-INF/jszip/other.bin"}) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(name.getBytes("UTF-8"));
+                zip.closeEntry();
+            }
+        } finally {
+            zip.close();
+        }
+
+        ZipIndex index = ZipIndex.read(file);
+        assertThat(index.size(), is(3));
+        assertThat(index.getName(0), is("a/"));
+        assertThat(index.getName(1), is("a/b.js"));
+        assertThat(index.getName(2), is("b/c.js"));
+        assertThat(index.getSize(2), is(6L));
+        assertThat(index.getOffset(2), is(-1L));
+    }
+}